@@ -0,0 +1,103 @@
+package com.example.benchmarks;
+
+import com.example.pages.mobile.WikipediaAppPage;
+import com.example.utils.LocatorProbe;
+import com.example.utils.PageSnapshot;
+import io.appium.java_client.android.AndroidDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы page object'ов, ожиданий и разбора page source поверх скриптованного драйвера
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dstrategy.cache.file=target/benchmark-strategy-cache.properties")
+@State(Scope.Thread)
+public class AppPageBenchmark {
+
+    private static final String[] ARTICLE_SCREEN = {
+            "org.wikipedia.alpha:id/page_toolbar_button_text",
+            "org.wikipedia.alpha:id/view_page_title_text",
+            "org.wikipedia.alpha:id/page_actions_tab_layout",
+            "org.wikipedia.alpha:id/page_scroll_view"
+    };
+    private static final String[] SEARCH_SCREEN = {
+            "org.wikipedia.alpha:id/search_src_text",
+            "org.wikipedia.alpha:id/search_close_btn",
+            "org.wikipedia.alpha:id/page_list_item_title"
+    };
+
+    private AndroidDriver articleDriver;
+    private AndroidDriver searchDriver;
+    private RemoteWebDriver webDriver;
+    private String articlePageSource;
+
+    @Setup
+    public void setUp() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        articleDriver = ScriptedCommandExecutor.androidDriver(ARTICLE_SCREEN);
+        searchDriver = ScriptedCommandExecutor.androidDriver(SEARCH_SCREEN);
+        webDriver = ScriptedCommandExecutor.webDriver("firstHeading", "searchInput", "bodyContent");
+        articlePageSource = articleDriver.getPageSource();
+        // Без этой проверки бенчмарки могли бы незаметно измерять ветку "элемент не найден"
+        if (!probeArticleTitleCandidates().isFound() || !"Java".equals(getArticleTitle())) {
+            throw new IllegalStateException("Скриптованный экран статьи не находит заголовок");
+        }
+    }
+
+    @Benchmark
+    public WebElement webDriverWaitPresence() {
+        return new WebDriverWait(webDriver, Duration.ofSeconds(1))
+                .until(ExpectedConditions.visibilityOfElementLocated(By.id("firstHeading")));
+    }
+
+    @Benchmark
+    public boolean isArticleOpen() {
+        return new WikipediaAppPage(articleDriver).isArticleOpen();
+    }
+
+    @Benchmark
+    public String getArticleTitle() {
+        return new WikipediaAppPage(articleDriver).getArticleTitle();
+    }
+
+    @Benchmark
+    public void clickFirstSearchResult() {
+        new WikipediaAppPage(searchDriver).clickFirstSearchResult();
+    }
+
+    @Benchmark
+    public LocatorProbe.ProbeResult probeArticleTitleCandidates() {
+        return LocatorProbe.probeDisplayedIds(articleDriver,
+                "org.wikipedia.alpha:id/view_page_title_text",
+                "org.wikipedia.alpha:id/page_toolbar_button_text",
+                "org.wikipedia.alpha:id/articleTitle",
+                "org.wikipedia.alpha:id/title");
+    }
+
+    @Benchmark
+    public PageSnapshot parsePageSource() {
+        return PageSnapshot.parse(articlePageSource);
+    }
+}
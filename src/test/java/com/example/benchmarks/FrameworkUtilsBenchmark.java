@@ -0,0 +1,59 @@
+package com.example.benchmarks;
+
+import com.example.utils.RunWithWaitUtil;
+import com.example.utils.SneakyThrowUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы утилит ожидания и проброса исключений без участия драйвера
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrameworkUtilsBenchmark {
+
+    private int counter;
+
+    @Setup
+    public void silenceOutput() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public void runWithPostWaitWithoutSleep(final Blackhole blackhole) {
+        RunWithWaitUtil.runWithPostWait(() -> blackhole.consume(counter++), 0);
+    }
+
+    @Benchmark
+    public boolean waitUntilAlreadySatisfied() {
+        return RunWithWaitUtil.waitUntil("benchmark", () -> true, 1000);
+    }
+
+    @Benchmark
+    public Integer sneakyGet() {
+        return SneakyThrowUtil.sneakyGet(() -> counter++);
+    }
+
+    @Benchmark
+    public Integer sneakyFunctionAdaptation() {
+        return SneakyThrowUtil.<Integer, Integer>function(value -> value + 1).apply(counter++);
+    }
+}
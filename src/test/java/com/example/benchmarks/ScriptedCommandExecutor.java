@@ -0,0 +1,172 @@
+package com.example.benchmarks;
+
+import com.example.utils.SneakyThrowUtil;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.ImmutableCapabilities;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.Dialect;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.SessionId;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Скриптованный исполнитель команд WebDriver без сети.
+ * Отвечает на команды из памяти: "экран" задаётся набором присутствующих resource-id/id,
+ * идентификатор элемента совпадает с его resource-id. Поиск понимает id, class name, XPath по @resource-id
+ * и UiSelector().resourceIdMatches(...); совпадения возвращаются в порядке "экрана". Используется бенчмарками,
+ * чтобы измерять накладные расходы фреймворка без задержек настоящего драйвера
+ */
+public class ScriptedCommandExecutor extends HttpCommandExecutor {
+
+    private static final String ELEMENT_KEY = Dialect.W3C.getEncodedElementKey();
+    private static final Pattern RESOURCE_ID_IN_XPATH = Pattern.compile("@resource-id='([^']+)'");
+    private static final Pattern RESOURCE_ID_MATCHES = Pattern.compile("resourceIdMatches\\(\"(.*)\"\\)");
+    private static final SessionId SESSION_ID = new SessionId("scripted-session");
+
+    private final Map<String, Object> capabilities;
+    private final Set<String> presentIds;
+    private final String pageSource;
+
+    public ScriptedCommandExecutor(final Map<String, Object> capabilities, final Collection<String> presentIds) {
+        super(SneakyThrowUtil.sneakyGet(() -> URI.create("http://127.0.0.1:4723").toURL()));
+        this.capabilities = capabilities;
+        this.presentIds = new LinkedHashSet<>(presentIds);
+        this.pageSource = buildPageSource(this.presentIds);
+    }
+
+    /**
+     * Создаёт AndroidDriver, работающий поверх скриптованного исполнителя
+     */
+    public static AndroidDriver androidDriver(final String... presentIds) {
+        final Map<String, Object> capabilities = Map.of(
+                "platformName", "Android",
+                "appium:automationName", "UiAutomator2"
+        );
+        return new AndroidDriver(new ScriptedCommandExecutor(capabilities, Arrays.asList(presentIds)),
+                new ImmutableCapabilities(capabilities));
+    }
+
+    /**
+     * Создаёт браузерный RemoteWebDriver, работающий поверх скриптованного исполнителя
+     */
+    public static RemoteWebDriver webDriver(final String... presentIds) {
+        final Map<String, Object> capabilities = Map.of("browserName", "chrome");
+        return new RemoteWebDriver(new ScriptedCommandExecutor(capabilities, Arrays.asList(presentIds)),
+                new ImmutableCapabilities(capabilities));
+    }
+
+    /**
+     * XML иерархии экрана в формате UiAutomator2
+     */
+    public String getPageSource() {
+        return pageSource;
+    }
+
+    @Override
+    public Response execute(final Command command) {
+        final Response response = new Response(SESSION_ID);
+        response.setState("success");
+        response.setValue(handle(command.getName(), command.getParameters()));
+        return response;
+    }
+
+    private Object handle(final String name, final Map<String, ?> parameters) {
+        switch (name) {
+            case DriverCommand.NEW_SESSION:
+                return capabilities;
+            case DriverCommand.FIND_ELEMENT:
+            case DriverCommand.FIND_CHILD_ELEMENT:
+                final List<Map<String, String>> found = find(parameters);
+                if (found.isEmpty()) {
+                    throw new NoSuchElementException("Scripted screen has no " + parameters.get("value"));
+                }
+                return found.get(0);
+            case DriverCommand.FIND_ELEMENTS:
+            case DriverCommand.FIND_CHILD_ELEMENTS:
+                return find(parameters);
+            case DriverCommand.GET_PAGE_SOURCE:
+                return pageSource;
+            case DriverCommand.IS_ELEMENT_DISPLAYED:
+            case DriverCommand.IS_ELEMENT_ENABLED:
+                return true;
+            case DriverCommand.GET_ELEMENT_TEXT:
+                return "Java";
+            case DriverCommand.GET_ELEMENT_ATTRIBUTE:
+                return "resource-id".equals(parameters.get("name")) ? parameters.get("id") : null;
+            case DriverCommand.GET_ELEMENT_RECT:
+                return Map.of("x", 0, "y", 200, "width", 1080, "height", 120);
+            case DriverCommand.GET_ELEMENT_LOCATION:
+                return Map.of("x", 0, "y", 200);
+            case DriverCommand.GET_ELEMENT_SIZE:
+                return Map.of("width", 1080, "height", 120);
+            case DriverCommand.GET_CURRENT_URL:
+                return "about:blank";
+            default:
+                return null;
+        }
+    }
+
+    private List<Map<String, String>> find(final Map<String, ?> parameters) {
+        final String using = String.valueOf(parameters.get("using"));
+        final String value = String.valueOf(parameters.get("value"));
+        final List<Map<String, String>> elements = new ArrayList<>();
+        if ("xpath".equals(using)) {
+            final Matcher matcher = RESOURCE_ID_IN_XPATH.matcher(value);
+            while (matcher.find()) {
+                if (presentIds.contains(matcher.group(1))) {
+                    elements.add(Map.of(ELEMENT_KEY, matcher.group(1)));
+                }
+            }
+        } else if ("-android uiautomator".equals(using)) {
+            final Matcher matcher = RESOURCE_ID_MATCHES.matcher(value);
+            if (matcher.find()) {
+                final Pattern idPattern = Pattern.compile(matcher.group(1));
+                presentIds.stream()
+                        .filter(id -> idPattern.matcher(id).matches())
+                        .forEach(id -> elements.add(Map.of(ELEMENT_KEY, id)));
+            }
+        } else if ("class name".equals(using)) {
+            presentIds.stream().findFirst().ifPresent(id -> elements.add(Map.of(ELEMENT_KEY, id)));
+        } else {
+            final String id = value.startsWith("#") ? value.substring(1) : value;
+            if (presentIds.contains(id)) {
+                elements.add(Map.of(ELEMENT_KEY, id));
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Строит правдоподобную иерархию: присутствующие элементы среди служебных контейнеров
+     */
+    private static String buildPageSource(final Collection<String> presentIds) {
+        final StringBuilder xml = new StringBuilder("<?xml version='1.0' encoding='UTF-8' standalone='yes' ?>")
+                .append("<hierarchy index=\"0\" class=\"hierarchy\" rotation=\"0\" width=\"1080\" height=\"2340\">");
+        int index = 0;
+        for (String id : presentIds) {
+            for (int filler = 0; filler < 20; filler++) {
+                xml.append("<android.widget.FrameLayout index=\"").append(index++)
+                        .append("\" class=\"android.widget.FrameLayout\" resource-id=\"\" displayed=\"true\"")
+                        .append(" bounds=\"[0,0][1080,2340]\"/>");
+            }
+            xml.append("<android.widget.TextView index=\"").append(index++)
+                    .append("\" class=\"android.widget.TextView\" text=\"Java\" resource-id=\"").append(id)
+                    .append("\" displayed=\"true\" bounds=\"[0,200][1080,320]\"/>");
+        }
+        return xml.append("</hierarchy>").toString();
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.listeners;
+
+import com.example.utils.CommandMetrics;
+import com.example.utils.ElementCachingDecorator;
+import com.example.utils.SneakyThrowUtil;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+
+import java.nio.file.Paths;
+
+/**
+ * Выгружает метрики команд WebDriver в конце прогона и печатает статистику кэша элементов.
+ * Каталог задаётся свойством metrics.dir (по умолчанию target/metrics)
+ */
+public class CommandMetricsListener implements ISuiteListener {
+
+    @Override
+    public void onFinish(final ISuite suite) {
+        if (ElementCachingDecorator.isEnabled()) {
+            System.out.println("Кэш элементов: " + ElementCachingDecorator.statistics());
+        }
+        if (!CommandMetrics.isEnabled()) {
+            return;
+        }
+        SneakyThrowUtil.sneakyRun(() -> CommandMetrics.getInstance()
+                .export(Paths.get(System.getProperty("metrics.dir", "target/metrics"))));
+    }
+}
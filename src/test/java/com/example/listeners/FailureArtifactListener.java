@@ -0,0 +1,102 @@
+package com.example.listeners;
+
+import com.example.utils.AppiumDriverManager;
+import com.example.utils.CommandMetrics;
+import com.example.utils.FailureArtifactWriter;
+import com.example.utils.WebDriverManagerUtil;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestResult;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Артефакты падений: скриншот, page source и последние команды драйвера.
+ * Снимаются в тестовом потоке сразу после упавшего метода, пока сессия ещё не возвращена в пул,
+ * а сжатие и запись выполняет {@link FailureArtifactWriter} в фоне.
+ * Журнал команд очищается в начале каждого теста (первый @BeforeMethod), поэтому в нём только команды упавшего теста.
+ * Каталог - artifacts.dir (по умолчанию target/failure-artifacts), размер очереди - artifacts.queue.size,
+ * отключается -Dartifacts.enabled=false
+ */
+public class FailureArtifactListener implements IInvokedMethodListener, ISuiteListener {
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("artifacts.enabled", "true"));
+
+    private final AtomicLong grabMicros = new AtomicLong();
+    private final TestBoundary testBoundary = new TestBoundary();
+    private volatile FailureArtifactWriter writer;
+
+    @Override
+    public void onStart(final ISuite suite) {
+        if (ENABLED) {
+            writer = new FailureArtifactWriter(Paths.get(System.getProperty("artifacts.dir", "target/failure-artifacts")),
+                    Integer.getInteger("artifacts.queue.size", 32));
+        }
+    }
+
+    @Override
+    public void beforeInvocation(final IInvokedMethod method, final ITestResult testResult) {
+        if (testBoundary.starts(method)) {
+            CommandMetrics.getInstance().clearRecentCommands();
+        }
+    }
+
+    @Override
+    public void afterInvocation(final IInvokedMethod method, final ITestResult testResult) {
+        testBoundary.ends(method, testResult);
+        final FailureArtifactWriter currentWriter = writer;
+        if (currentWriter == null || testResult.getStatus() != ITestResult.FAILURE) {
+            return;
+        }
+        final long startedAt = System.nanoTime();
+        final String testName = testResult.getTestClass().getRealClass().getSimpleName() + "." + method.getTestMethod().getMethodName();
+        // Журнал берётся до снятия скриншота, чтобы в него не попали команды самого снятия
+        final List<String> recentCommands = CommandMetrics.getInstance().getRecentCommands();
+        final WebDriver driver = currentDriver();
+        byte[] screenshot = null;
+        String pageSource = null;
+        if (driver != null) {
+            try {
+                screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+            } catch (RuntimeException e) {
+                System.out.println("Не удалось снять скриншот для " + testName + ": " + e.getMessage());
+            }
+            try {
+                pageSource = driver.getPageSource();
+            } catch (RuntimeException e) {
+                System.out.println("Не удалось получить page source для " + testName + ": " + e.getMessage());
+            }
+        }
+        final Throwable throwable = testResult.getThrowable();
+        currentWriter.submit(new FailureArtifactWriter.FailureArtifact(testName,
+                throwable == null ? null : throwable.toString(), screenshot, pageSource, recentCommands));
+        grabMicros.addAndGet(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedAt));
+    }
+
+    @Override
+    public void onFinish(final ISuite suite) {
+        final FailureArtifactWriter currentWriter = writer;
+        if (currentWriter == null) {
+            return;
+        }
+        writer = null;
+        currentWriter.close(TimeUnit.SECONDS.toMillis(30));
+        System.out.println("Снятие артефактов в тестовых потоках: " + grabMicros.get() / 1000 + " мс");
+    }
+
+    /**
+     * Сессия текущего потока: сначала мобильная, затем браузерная; null, если поток не держит сессию
+     */
+    private static WebDriver currentDriver() {
+        final WebDriver mobile = AppiumDriverManager.getLeasedDriver();
+        return mobile != null ? mobile : WebDriverManagerUtil.getLeasedDriver();
+    }
+}
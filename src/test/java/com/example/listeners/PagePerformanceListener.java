@@ -0,0 +1,23 @@
+package com.example.listeners;
+
+import com.example.utils.PagePerformance;
+import com.example.utils.SneakyThrowUtil;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+
+import java.nio.file.Paths;
+
+/**
+ * Выгружает перцентили метрик страниц в конце прогона.
+ * Каталог задаётся свойством perf.pages.dir (по умолчанию target/page-perf)
+ */
+public class PagePerformanceListener implements ISuiteListener {
+
+    @Override
+    public void onFinish(final ISuite suite) {
+        if (!PagePerformance.isEnabled()) {
+            return;
+        }
+        SneakyThrowUtil.sneakyRun(() -> PagePerformance.export(Paths.get(System.getProperty("perf.pages.dir", "target/page-perf"))));
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.listeners;
+
+import com.example.utils.SneakyThrowUtil;
+import com.example.utils.TestTimings;
+import org.openqa.selenium.json.Json;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Отчёт о производительности тестов.
+ * Для каждого теста (от первого @BeforeMethod до конца метода) время раскладывается на запуск драйвера,
+ * явные ожидания, паузы и команды драйвера; остаток - логика теста и фреймворка.
+ * Отчёт пишется в perf.report.dir (по умолчанию target/perf-report) в JSON и HTML.
+ * Если есть baseline (perf.baseline), тест, время которого выросло больше чем на perf.regression.percent
+ * и больше чем на perf.regression.min.ms, помечается упавшим.
+ * С -Dperf.baseline.update=true проверка не выполняется, а baseline перезаписывается по текущему прогону
+ */
+public class PerformanceReportListener implements IInvokedMethodListener, ISuiteListener {
+
+    private static final Path BASELINE_FILE = Paths.get(System.getProperty("perf.baseline", "src/test/resources/perf-baseline.properties"));
+    private static final Path REPORT_DIR = Paths.get(System.getProperty("perf.report.dir", "target/perf-report"));
+    private static final double REGRESSION_PERCENT = Double.parseDouble(System.getProperty("perf.regression.percent", "20"));
+    private static final long REGRESSION_MIN_MILLIS = Long.getLong("perf.regression.min.ms", 500L);
+    private static final boolean UPDATE_BASELINE = Boolean.getBoolean("perf.baseline.update");
+
+    private final TestBoundary testBoundary = new TestBoundary();
+    private final Queue<Map<String, Object>> records = new ConcurrentLinkedQueue<>();
+    private final Properties baseline = new Properties();
+
+    @Override
+    public void onStart(final ISuite suite) {
+        if (UPDATE_BASELINE || !Files.exists(BASELINE_FILE)) {
+            return;
+        }
+        SneakyThrowUtil.sneakyRun(() -> {
+            try (InputStream in = Files.newInputStream(BASELINE_FILE)) {
+                baseline.load(in);
+            }
+        });
+        System.out.println("Загружен baseline производительности: " + baseline.size() + " тестов");
+    }
+
+    @Override
+    public void beforeInvocation(final IInvokedMethod method, final ITestResult testResult) {
+        if (testBoundary.starts(method)) {
+            TestTimings.startTest();
+        }
+    }
+
+    @Override
+    public void afterInvocation(final IInvokedMethod method, final ITestResult testResult) {
+        if (!testBoundary.ends(method, testResult) || !method.isTestMethod()) {
+            return;
+        }
+
+        final String name = testName(testResult);
+        final long wallMillis = TestTimings.getWallMillis();
+        final Map<TestTimings.Category, Long> byCategory = TestTimings.getMillisByCategory();
+        final long accounted = byCategory.values().stream().mapToLong(Long::longValue).sum();
+
+        final Map<String, Object> record = new LinkedHashMap<>();
+        record.put("test", name);
+        record.put("status", statusOf(testResult));
+        record.put("wallMillis", wallMillis);
+        for (Map.Entry<TestTimings.Category, Long> entry : byCategory.entrySet()) {
+            record.put(camelCase(entry.getKey()) + "Millis", entry.getValue());
+        }
+        record.put("otherMillis", Math.max(0, wallMillis - accounted));
+
+        final String baselineValue = baseline.getProperty(name);
+        if (baselineValue != null) {
+            final long baselineMillis = Long.parseLong(baselineValue.trim());
+            final boolean regressed = wallMillis > baselineMillis * (1 + REGRESSION_PERCENT / 100)
+                    && wallMillis - baselineMillis > REGRESSION_MIN_MILLIS;
+            record.put("baselineMillis", baselineMillis);
+            record.put("regressed", regressed);
+            if (regressed && testResult.getStatus() == ITestResult.SUCCESS) {
+                testResult.setStatus(ITestResult.FAILURE);
+                testResult.setThrowable(new AssertionError(String.format(
+                        "Регрессия производительности: %s выполнялся %d мс, baseline %d мс (допуск %.0f%%)",
+                        name, wallMillis, baselineMillis, REGRESSION_PERCENT)));
+            }
+        }
+        records.add(record);
+    }
+
+    @Override
+    public void onFinish(final ISuite suite) {
+        if (records.isEmpty()) {
+            return;
+        }
+        final List<Map<String, Object>> sorted = new ArrayList<>(records);
+        sorted.sort(Comparator.comparingLong((Map<String, Object> record) -> (long) record.get("wallMillis")).reversed());
+        SneakyThrowUtil.sneakyRun(() -> {
+            Files.createDirectories(REPORT_DIR);
+            Files.write(REPORT_DIR.resolve("perf-report.json"),
+                    new Json().toJson(Map.of("suite", suite.getName(), "tests", sorted)).getBytes(StandardCharsets.UTF_8));
+            Files.write(REPORT_DIR.resolve("perf-report.html"), toHtml(suite.getName(), sorted).getBytes(StandardCharsets.UTF_8));
+            if (UPDATE_BASELINE) {
+                saveBaseline(sorted);
+            }
+        });
+        System.out.println("Отчёт о производительности тестов сохранён в " + REPORT_DIR.toAbsolutePath());
+    }
+
+    private void saveBaseline(final List<Map<String, Object>> sorted) throws IOException {
+        final Properties updated = new Properties();
+        for (Map<String, Object> record : sorted) {
+            if ("SUCCESS".equals(record.get("status"))) {
+                updated.setProperty((String) record.get("test"), String.valueOf(record.get("wallMillis")));
+            }
+        }
+        if (BASELINE_FILE.getParent() != null) {
+            Files.createDirectories(BASELINE_FILE.getParent());
+        }
+        try (OutputStream out = Files.newOutputStream(BASELINE_FILE)) {
+            updated.store(out, "Baseline wall time of tests, ms");
+        }
+        System.out.println("Baseline производительности обновлён: " + BASELINE_FILE);
+    }
+
+    private static String toHtml(final String suiteName, final List<Map<String, Object>> sorted) {
+        final String[] columns = {"test", "status", "wallMillis", "driverStartupMillis", "explicitWaitMillis",
+                "sleepMillis", "driverCommandMillis", "otherMillis", "baselineMillis", "regressed"};
+        final StringBuilder html = new StringBuilder("<!DOCTYPE html><html><head><meta charset=\"UTF-8\"><title>")
+                .append(escape(suiteName)).append(" - производительность</title>")
+                .append("<style>table{border-collapse:collapse}td,th{border:1px solid #ccc;padding:4px 8px;text-align:right}")
+                .append("td:first-child{text-align:left}.regressed{background:#fdd}</style></head><body><h1>")
+                .append(escape(suiteName)).append("</h1><table><tr>");
+        for (String column : columns) {
+            html.append("<th>").append(column).append("</th>");
+        }
+        html.append("</tr>");
+        for (Map<String, Object> record : sorted) {
+            html.append(Boolean.TRUE.equals(record.get("regressed")) ? "<tr class=\"regressed\">" : "<tr>");
+            for (String column : columns) {
+                final Object value = record.get(column);
+                html.append("<td>").append(value == null ? "" : escape(String.valueOf(value))).append("</td>");
+            }
+            html.append("</tr>");
+        }
+        return html.append("</table></body></html>").toString();
+    }
+
+    private static String testName(final ITestResult testResult) {
+        final String name = testResult.getTestClass().getRealClass().getSimpleName() + "." + testResult.getMethod().getMethodName();
+        final Object[] parameters = testResult.getParameters();
+        return parameters == null || parameters.length == 0 ? name : name + Arrays.toString(parameters);
+    }
+
+    private static String statusOf(final ITestResult testResult) {
+        switch (testResult.getStatus()) {
+            case ITestResult.SUCCESS:
+                return "SUCCESS";
+            case ITestResult.FAILURE:
+                return "FAILURE";
+            case ITestResult.SKIP:
+                return "SKIP";
+            default:
+                return String.valueOf(testResult.getStatus());
+        }
+    }
+
+    private static String camelCase(final TestTimings.Category category) {
+        final String[] words = category.name().toLowerCase().split("_");
+        final StringBuilder result = new StringBuilder(words[0]);
+        for (int i = 1; i < words.length; i++) {
+            result.append(Character.toUpperCase(words[i].charAt(0))).append(words[i].substring(1));
+        }
+        return result.toString();
+    }
+
+    private static String escape(final String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.listeners;
+
+import com.example.utils.DevicePool;
+import com.example.utils.DurationHistory;
+import com.example.utils.TestImpactAnalyzer;
+import org.testng.IAlterSuiteListener;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ISuiteResult;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Раскладка прогона по независимым пулам ресурсов.
+ * Блоки &lt;test&gt; сьюта выполняются одновременно (parallel="tests"), а число потоков каждого блока
+ * задаётся его ресурсом - параметром track: web - web.workers (по умолчанию driver.pool.size или число ядер),
+ * mobile - число устройств в {@link DevicePool}. Внутри блока тесты группы smoke запускаются первыми,
+ * остальные - от самых долгих к коротким по {@link DurationHistory} (LPT): потоки берут тесты по очереди,
+ * поэтому долгий тест не остаётся на конец прогона. По истории же рассчитывается прогноз длительности блока,
+ * который в конце сравнивается с фактической.
+ * С -Dimpact.since=&lt;ревизия&gt; запускаются только тесты, затронутые изменениями ({@link TestImpactAnalyzer}).
+ * Подключается через META-INF/services, так как IAlterSuiteListener должен быть известен до чтения сьюта
+ */
+public class SuiteOrchestrator implements IAlterSuiteListener, IMethodInterceptor, ISuiteListener, IInvokedMethodListener {
+
+    public static final String TRACK_PARAMETER = "track";
+    public static final String SMOKE_GROUP = "smoke";
+    private static final long DEFAULT_ESTIMATE_MILLIS = 10_000L;
+
+    private final DurationHistory history = DurationHistory.load();
+    private final Map<String, Long> predictedMillis = new ConcurrentHashMap<>();
+    private final Queue<DurationHistory.Sample> samples = new ConcurrentLinkedQueue<>();
+    private final TestBoundary testBoundary = new TestBoundary();
+    private final ThreadLocal<Long> testStartedAt = new ThreadLocal<>();
+    private volatile long suiteStartedAt;
+
+    @Override
+    public void alter(final List<XmlSuite> suites) {
+        for (XmlSuite suite : suites) {
+            int tracks = 0;
+            for (XmlTest test : suite.getTests()) {
+                final String track = test.getParameter(TRACK_PARAMETER);
+                if (track == null) {
+                    continue;
+                }
+                tracks++;
+                final int workers = workersFor(track);
+                if (workers > 0) {
+                    test.setParallel(XmlSuite.ParallelMode.METHODS);
+                    test.setThreadCount(workers);
+                    System.out.println("Блок " + test.getName() + ": потоков " + workers);
+                }
+            }
+            if (tracks > 1) {
+                suite.setParallel(XmlSuite.ParallelMode.TESTS);
+                suite.setThreadCount(suite.getTests().size());
+            }
+        }
+    }
+
+    private static int workersFor(final String track) {
+        switch (track) {
+            case "web":
+                return Integer.getInteger("web.workers",
+                        Integer.getInteger("driver.pool.size", Runtime.getRuntime().availableProcessors()));
+            case "mobile":
+                return Integer.getInteger("mobile.workers", DevicePool.configuredSize());
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Отбрасывает тесты, не затронутые изменениями (если задан impact.since), и ставит первыми тесты группы smoke -
+     * быстрая обратная связь, затем остальные от самых долгих к коротким
+     */
+    @Override
+    public List<IMethodInstance> intercept(final List<IMethodInstance> allMethods, final ITestContext context) {
+        final List<IMethodInstance> methods = selectAffected(allMethods);
+        final Map<IMethodInstance, Long> estimates = estimate(methods);
+        final List<IMethodInstance> ordered = new ArrayList<>(methods);
+        ordered.sort(Comparator.comparing((IMethodInstance method) -> !isSmoke(method))
+                .thenComparing(estimates::get, Comparator.reverseOrder()));
+
+        final XmlTest test = context.getCurrentXmlTest();
+        final int workers = test.getParallel() == XmlSuite.ParallelMode.METHODS ? Math.max(1, test.getThreadCount()) : 1;
+        final List<Long> durations = new ArrayList<>();
+        for (IMethodInstance method : ordered) {
+            durations.add(estimates.get(method));
+        }
+        final long predicted = makespan(durations, workers);
+        predictedMillis.put(context.getName(), predicted);
+        System.out.println("Блок " + context.getName() + ": тестов " + ordered.size() + ", потоков " + workers
+                + ", прогноз " + predicted + " мс");
+        return ordered;
+    }
+
+    /**
+     * Оценки длительности по истории; для тестов без истории - медиана известных оценок блока
+     */
+    private Map<IMethodInstance, Long> estimate(final List<IMethodInstance> methods) {
+        final Map<IMethodInstance, Long> estimates = new IdentityHashMap<>();
+        final List<Long> known = new ArrayList<>();
+        for (IMethodInstance method : methods) {
+            final Long estimate = history.estimate(testName(method.getMethod()));
+            if (estimate != null) {
+                estimates.put(method, estimate);
+                known.add(estimate);
+            }
+        }
+        known.sort(null);
+        final long fallback = known.isEmpty() ? DEFAULT_ESTIMATE_MILLIS : known.get(known.size() / 2);
+        for (IMethodInstance method : methods) {
+            estimates.putIfAbsent(method, fallback);
+        }
+        return estimates;
+    }
+
+    /**
+     * Длительность блока при списочном планировании: каждый тест по порядку достаётся первому освободившемуся потоку
+     *
+     * @param durations оценки длительности тестов в порядке запуска
+     * @param workers   число потоков блока
+     */
+    public static long makespan(final List<Long> durations, final int workers) {
+        final PriorityQueue<Long> finishTimes = new PriorityQueue<>();
+        for (int i = 0; i < Math.max(1, workers); i++) {
+            finishTimes.add(0L);
+        }
+        long makespan = 0;
+        for (long duration : durations) {
+            final long finish = finishTimes.poll() + duration;
+            makespan = Math.max(makespan, finish);
+            finishTimes.add(finish);
+        }
+        return makespan;
+    }
+
+    /**
+     * Время теста считается от его первого @BeforeMethod до конца метода - так же, как его занимает поток.
+     * Тест с упавшим @BeforeMethod в историю не пишется
+     */
+    @Override
+    public void beforeInvocation(final IInvokedMethod method, final ITestResult testResult) {
+        if (testBoundary.starts(method)) {
+            testStartedAt.set(System.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public void afterInvocation(final IInvokedMethod method, final ITestResult testResult) {
+        if (!testBoundary.ends(method, testResult)) {
+            return;
+        }
+        final Long startedAt = testStartedAt.get();
+        testStartedAt.remove();
+        if (method.isTestMethod() && startedAt != null && testResult.getStatus() != ITestResult.SKIP) {
+            samples.add(new DurationHistory.Sample(testName(method.getTestMethod()),
+                    System.currentTimeMillis() - startedAt, testResult.getStatus() == ITestResult.SUCCESS));
+        }
+    }
+
+    private static String testName(final ITestNGMethod method) {
+        return method.getRealClass().getName() + "#" + method.getMethodName();
+    }
+
+    private static List<IMethodInstance> selectAffected(final List<IMethodInstance> methods) {
+        final Set<String> selected = TestImpactAnalyzer.selectedTests();
+        if (selected == null) {
+            return methods;
+        }
+        final List<IMethodInstance> affected = new ArrayList<>();
+        for (IMethodInstance method : methods) {
+            if (selected.contains(testName(method.getMethod()))) {
+                affected.add(method);
+            }
+        }
+        return affected;
+    }
+
+    private static boolean isSmoke(final IMethodInstance method) {
+        return Arrays.asList(method.getMethod().getGroups()).contains(SMOKE_GROUP);
+    }
+
+    @Override
+    public void onStart(final ISuite suite) {
+        suiteStartedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Печатает прогноз и фактическую длительность каждого блока и всего прогона: при параллельных блоках прогон
+     * должен занимать примерно столько же, сколько самый долгий блок. Длительности тестов дописываются в историю
+     */
+    @Override
+    public void onFinish(final ISuite suite) {
+        long longestTrack = 0;
+        long longestPrediction = 0;
+        for (ISuiteResult result : suite.getResults().values()) {
+            final ITestContext context = result.getTestContext();
+            final long duration = context.getEndDate().getTime() - context.getStartDate().getTime();
+            final long predicted = predictedMillis.getOrDefault(context.getName(), 0L);
+            longestTrack = Math.max(longestTrack, duration);
+            longestPrediction = Math.max(longestPrediction, predicted);
+            System.out.println("Блок " + context.getName() + ": " + duration + " мс, прогноз " + predicted + " мс");
+        }
+        System.out.println("Прогон " + suite.getName() + ": " + (System.currentTimeMillis() - suiteStartedAt)
+                + " мс, самый долгий блок: " + longestTrack + " мс, прогноз: " + longestPrediction + " мс");
+        history.append(new ArrayList<>(samples));
+        samples.clear();
+    }
+}
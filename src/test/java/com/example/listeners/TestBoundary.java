@@ -0,0 +1,48 @@
+package com.example.listeners;
+
+import org.testng.IInvokedMethod;
+import org.testng.ITestResult;
+
+/**
+ * Границы теста в потоке для слушателей TestNG.
+ * Тест начинается с первого @BeforeMethod (или с самого метода, если @BeforeMethod нет) и заканчивается после
+ * метода теста, @AfterMethod или упавшего @BeforeMethod. Последнее важно: после упавшей подготовки тест пропускается,
+ * и без этого следующий тест в том же потоке унаследовал бы начало предыдущего.
+ * У каждого слушателя свой экземпляр
+ */
+public final class TestBoundary {
+
+    private final ThreadLocal<Boolean> started = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * Отмечает начало теста
+     *
+     * @return true, если вызов начинает новый тест в текущем потоке
+     */
+    public boolean starts(final IInvokedMethod method) {
+        if (started.get() || !(isBeforeMethod(method) || method.isTestMethod())) {
+            return false;
+        }
+        started.set(true);
+        return true;
+    }
+
+    /**
+     * Отмечает конец теста
+     *
+     * @return true, если после этого вызова тест в текущем потоке закончен
+     */
+    public boolean ends(final IInvokedMethod method, final ITestResult testResult) {
+        final boolean failedSetUp = isBeforeMethod(method) && testResult.getStatus() != ITestResult.SUCCESS;
+        final boolean afterMethod = method.isConfigurationMethod() && method.getTestMethod().isAfterMethodConfiguration();
+        if (!method.isTestMethod() && !afterMethod && !failedSetUp) {
+            return false;
+        }
+        started.set(false);
+        return true;
+    }
+
+    private static boolean isBeforeMethod(final IInvokedMethod method) {
+        return method.isConfigurationMethod() && method.getTestMethod().isBeforeMethodConfiguration();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.listeners;
+
+import com.example.utils.TestDeadline;
+import com.example.utils.TimeBudget;
+import org.testng.IInvokedMethod;
+import org.testng.IInvokedMethodListener;
+import org.testng.ITestResult;
+
+import java.time.Duration;
+
+/**
+ * Начинает бюджет времени теста с первого @BeforeMethod и снимает его после теста, чтобы очистка не прерывалась.
+ * Бюджет берётся из {@link TimeBudget} метода теста, иначе из свойства test.budget.seconds (0 - без бюджета).
+ * Получение устройства или браузера и запуск сессии в бюджет не входят (см. {@link TestDeadline#excluding})
+ */
+public class TestDeadlineListener implements IInvokedMethodListener {
+
+    private static final long DEFAULT_BUDGET_SECONDS = Long.getLong("test.budget.seconds", 180L);
+
+    @Override
+    public void beforeInvocation(final IInvokedMethod method, final ITestResult testResult) {
+        if (method.isConfigurationMethod() && method.getTestMethod().isBeforeMethodConfiguration()) {
+            if (!TestDeadline.isActive() && DEFAULT_BUDGET_SECONDS > 0) {
+                TestDeadline.start(Duration.ofSeconds(DEFAULT_BUDGET_SECONDS));
+            }
+            return;
+        }
+        if (!method.isTestMethod()) {
+            return;
+        }
+        final TimeBudget budget = method.getTestMethod().getConstructorOrMethod().getMethod().getAnnotation(TimeBudget.class);
+        if (budget != null) {
+            TestDeadline.setBudget(Duration.ofSeconds(budget.seconds()));
+        } else if (!TestDeadline.isActive() && DEFAULT_BUDGET_SECONDS > 0) {
+            TestDeadline.start(Duration.ofSeconds(DEFAULT_BUDGET_SECONDS));
+        }
+    }
+
+    @Override
+    public void afterInvocation(final IInvokedMethod method, final ITestResult testResult) {
+        final boolean failedSetUp = method.isConfigurationMethod()
+                && method.getTestMethod().isBeforeMethodConfiguration()
+                && testResult.getStatus() != ITestResult.SUCCESS;
+        if (method.isTestMethod() || failedSetUp) {
+            TestDeadline.clear();
+        }
+    }
+}
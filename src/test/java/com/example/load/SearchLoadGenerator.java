@@ -0,0 +1,211 @@
+package com.example.load;
+
+import com.example.pages.web.WikipediaHttpPage;
+import com.example.utils.LatencyHistogram;
+import com.example.utils.SneakyThrowUtil;
+import com.example.utils.WikiStandInServer;
+import org.openqa.selenium.json.Json;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Нагрузочный режим поиска: сценарий searchFor -> getArticleHeadingText через {@link WikipediaHttpPage}.
+ * Запросы из файла load.queries по кругу отправляются на базовый URL с постоянной частотой load.rate в секунду
+ * в течение load.duration.seconds. Задержка считается от запланированного момента отправки, а не от фактического,
+ * поэтому если сервер или генератор не успевают, ожидание в очереди попадает в гистограмму (без coordinated omission).
+ * Запросы отправляются асинхронно ({@link WikipediaHttpPage#searchHeadingAsync}): генератор не держит поток
+ * на каждый запрос в полёте, и частота не упирается в размер пула.
+ * Запросы, не завершившиеся за load.drain.seconds после окончания расписания, считаются ошибками с задержкой
+ * на момент остановки - самые медленные запросы не выпадают из перцентилей.
+ * По умолчанию нагрузка идёт на локальный сервер в режиме synthetic; на нелокальный адрес генератор
+ * запускается только с -Dload.allow.remote=true.
+ * Запуск: mvn -Pload verify [-Dwiki.server.mode=replay -Dload.rate=200]
+ */
+public class SearchLoadGenerator {
+
+    private static final Path QUERIES_FILE = Paths.get(System.getProperty("load.queries", "src/test/resources/load/search-queries.txt"));
+    private static final Path REPORT_DIR = Paths.get(System.getProperty("load.report.dir", "target/load-report"));
+    private static final long DRAIN_SECONDS = Long.getLong("load.drain.seconds", 60L);
+
+    private final List<String> queries;
+    private final double ratePerSecond;
+    private final int durationSeconds;
+    private final String siteUrl;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLongArray errorsPerSecond;
+    private final ConcurrentMap<Long, Long> inFlight = new ConcurrentHashMap<>();
+
+    public SearchLoadGenerator(final List<String> queries, final double ratePerSecond, final int durationSeconds,
+                               final String baseUrl) {
+        if (queries.isEmpty()) {
+            throw new IllegalArgumentException("Корпус запросов пуст");
+        }
+        this.queries = queries;
+        this.ratePerSecond = ratePerSecond;
+        this.durationSeconds = durationSeconds;
+        this.siteUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.errorsPerSecond = new AtomicLongArray(durationSeconds + 1);
+    }
+
+    public static void main(final String[] args) {
+        if (System.getProperty("wiki.server.mode") == null) {
+            System.setProperty("wiki.server.mode", "synthetic");
+        }
+        WikiStandInServer.startIfConfigured();
+        try {
+            final String baseUrl = WikiStandInServer.getBaseUrl();
+            if (!isLoopback(baseUrl) && !Boolean.getBoolean("load.allow.remote")) {
+                throw new IllegalStateException("Нагрузка на нелокальный адрес " + baseUrl
+                        + " запрещена; запустите с -Dwiki.server.mode=synthetic/replay или явно разрешите -Dload.allow.remote=true");
+            }
+            final SearchLoadGenerator generator = new SearchLoadGenerator(readQueries(QUERIES_FILE),
+                    Double.parseDouble(System.getProperty("load.rate", "50")),
+                    Integer.getInteger("load.duration.seconds", 30),
+                    baseUrl);
+            final Map<String, Object> report = generator.run();
+            System.out.println(format(report));
+            SneakyThrowUtil.sneakyRun(() -> {
+                Files.createDirectories(REPORT_DIR);
+                Files.write(REPORT_DIR.resolve("search-load.json"), new Json().toJson(report).getBytes(StandardCharsets.UTF_8));
+            });
+            System.out.println("Отчёт нагрузочного прогона сохранён в " + REPORT_DIR.toAbsolutePath());
+        } finally {
+            WikiStandInServer.stopIfRunning();
+        }
+    }
+
+    /**
+     * Выполняет прогон и возвращает отчёт: перцентили задержки в миллисекундах, число ошибок и ошибки по секундам
+     */
+    public Map<String, Object> run() {
+        final long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        final long total = (long) (ratePerSecond * durationSeconds);
+        final long startedAt = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            final long intendedStart = startedAt + i * intervalNanos;
+            final long delay = intendedStart - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            final String query = queries.get((int) (i % queries.size()));
+            final long request = i;
+            inFlight.put(request, intendedStart);
+            WikipediaHttpPage.searchHeadingAsync(siteUrl, query).whenComplete((heading, error) -> {
+                // Запрос, уже учтённый как незавершённый при остановке, второй раз не записывается
+                if (inFlight.remove(request) != null) {
+                    complete(intendedStart, startedAt, error != null || heading.isEmpty());
+                }
+            });
+        }
+        final long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_SECONDS);
+        while (!inFlight.isEmpty() && System.nanoTime() < drainDeadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        recordUnfinished(startedAt);
+        final long elapsedNanos = System.nanoTime() - startedAt;
+        return report(total, elapsedNanos);
+    }
+
+    /**
+     * Запросы, не завершившиеся к остановке, записываются ошибками с задержкой на момент остановки
+     */
+    private void recordUnfinished(final long startedAt) {
+        int unfinished = 0;
+        for (Long request : new ArrayList<>(inFlight.keySet())) {
+            final Long intendedStart = inFlight.remove(request);
+            if (intendedStart != null) {
+                complete(intendedStart, startedAt, true);
+                unfinished++;
+            }
+        }
+        if (unfinished > 0) {
+            System.out.println("Не завершились за " + DRAIN_SECONDS + " с после окончания расписания: " + unfinished + " запросов");
+        }
+    }
+
+    private void complete(final long intendedStart, final long startedAt, final boolean failed) {
+        latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart));
+        if (failed) {
+            errors.incrementAndGet();
+            final long second = TimeUnit.NANOSECONDS.toSeconds(intendedStart - startedAt);
+            errorsPerSecond.incrementAndGet((int) Math.min(second, errorsPerSecond.length() - 1));
+        }
+    }
+
+    private static boolean isLoopback(final String baseUrl) {
+        try {
+            final String host = URI.create(baseUrl).getHost();
+            return host != null && InetAddress.getByName(host).isLoopbackAddress();
+        } catch (IllegalArgumentException | UnknownHostException e) {
+            return false;
+        }
+    }
+
+    private Map<String, Object> report(final long total, final long elapsedNanos) {
+        final double elapsedSeconds = elapsedNanos / 1e9;
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("baseUrl", siteUrl);
+        report.put("targetRate", ratePerSecond);
+        report.put("requests", total);
+        report.put("completed", latency.getCount());
+        report.put("elapsedSeconds", round(elapsedSeconds));
+        report.put("achievedRate", round(latency.getCount() / elapsedSeconds));
+        report.put("p50Millis", millis(latency.percentile(0.50)));
+        report.put("p99Millis", millis(latency.percentile(0.99)));
+        report.put("p999Millis", millis(latency.percentile(0.999)));
+        report.put("maxMillis", millis(latency.getMaxMicros()));
+        report.put("meanMillis", round(latency.getMeanMicros() / 1000));
+        report.put("errors", errors.get());
+        report.put("errorsPerSecond", round(errors.get() / elapsedSeconds));
+        final List<Long> timeline = new ArrayList<>();
+        for (int i = 0; i < errorsPerSecond.length(); i++) {
+            timeline.add(errorsPerSecond.get(i));
+        }
+        report.put("errorsBySecond", timeline);
+        return report;
+    }
+
+    private static String format(final Map<String, Object> report) {
+        return String.format("Поиск: %s запросов за %s с (%s/с при цели %s/с), p50 %s мс, p99 %s мс, p999 %s мс, max %s мс, "
+                        + "ошибок %s (%s/с)",
+                report.get("completed"), report.get("elapsedSeconds"), report.get("achievedRate"), report.get("targetRate"),
+                report.get("p50Millis"), report.get("p99Millis"), report.get("p999Millis"), report.get("maxMillis"),
+                report.get("errors"), report.get("errorsPerSecond"));
+    }
+
+    static List<String> readQueries(final Path file) {
+        final List<String> queries = new ArrayList<>();
+        for (String line : SneakyThrowUtil.sneakyGet(() -> Files.readAllLines(file, StandardCharsets.UTF_8))) {
+            final String query = line.trim();
+            if (!query.isEmpty() && !query.startsWith("#")) {
+                queries.add(query);
+            }
+        }
+        return queries;
+    }
+
+    private static double millis(final long micros) {
+        return round(micros / 1000.0);
+    }
+
+    private static double round(final double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
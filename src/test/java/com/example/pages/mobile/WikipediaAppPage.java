@@ -1,25 +1,52 @@
 package com.example.pages.mobile;
 
+import com.example.utils.AppiumDriverManager;
+import com.example.utils.LocatorProbe;
+import com.example.utils.PageSnapshot;
 import com.example.utils.RunWithWaitUtil;
+import com.example.utils.StrategyCache;
+import com.example.utils.TestDeadline;
+import com.example.utils.TimedWebDriverWait;
 import io.appium.java_client.android.AndroidDriver;
 import org.openqa.selenium.By;
+import org.openqa.selenium.Rectangle;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BooleanSupplier;
 
 public class WikipediaAppPage {
     private AndroidDriver driver;
     private WebDriverWait wait;
+    private PageSnapshot snapshot;
 
     private static long COMMON_WAIT_TIME = 3000L;
 
+    private static final String SEARCH_CONTAINER_ID = "org.wikipedia.alpha:id/search_container";
+    private static final String SEARCH_INPUT_ID = "org.wikipedia.alpha:id/search_src_text";
+    private static final String SEARCH_CLOSE_ID = "org.wikipedia.alpha:id/search_close_btn";
+    private static final String SEARCH_RESULTS_ID = "org.wikipedia.alpha:id/search_results_container";
+    private static final String RESULT_TITLE_ID = "org.wikipedia.alpha:id/page_list_item_title";
+    private static final String ARTICLE_TITLE_ID = "org.wikipedia.alpha:id/view_page_title_text";
+    private static final String ARTICLE_SCROLL_ID = "org.wikipedia.alpha:id/page_scroll_view";
+
+    private static final String PAGE_NAME = "WikipediaAppPage";
+
+    private static final String MAIN_ACTIVITY = "org.wikipedia.main.MainActivity";
+    private static final String SEARCH_ACTIVITY = "org.wikipedia.search.SearchActivity";
+    private static final String NEW_CLEAR_TASK_FLAGS = "0x10008000";
+    private static final long NAVIGATION_WAIT_TIME = 15000L;
+
     public WikipediaAppPage(final AndroidDriver driver) {
         this.driver = driver;
-        this.wait = new WebDriverWait(driver, Duration.ofSeconds(10));
+        this.wait = new TimedWebDriverWait(driver, Duration.ofSeconds(10));
     }
 
     /**
@@ -49,18 +76,20 @@ public class WikipediaAppPage {
                 "org.wikipedia.alpha:id/title"
         };
 
-        for (String id : possibleTitleIds) {
-            try {
-                final List<WebElement> elements = driver.findElements(By.id(id));
-                if (!elements.isEmpty() && elements.get(0).isDisplayed()) {
-                    System.out.println("Найден заголовок статьи с id: " + id);
-                    return elements.get(0);
-                }
-            } catch (RuntimeException e) {
-                System.out.println(e.getMessage());
+        try {
+            // Один запрос по всем кандидатам; UiAutomator возвращает первый совпавший элемент в порядке дерева
+            final LocatorProbe.ProbeResult probe = LocatorProbe.probeDisplayedIds(driver, possibleTitleIds);
+            if (probe.isFound()) {
+                System.out.println("Найден заголовок статьи с id: " + probe.getMatchedId());
+                return probe.getElement();
             }
+        } catch (RuntimeException e) {
+            System.out.println(e.getMessage());
         }
 
+        if (TestDeadline.isExpired()) {
+            return null;
+        }
         try {
             final WebElement title = wait.until(ExpectedConditions.presenceOfElementLocated(
                     By.className("android.widget.TextView")
@@ -79,14 +108,15 @@ public class WikipediaAppPage {
      * Кликает на контейнер поиска для активации поискового интерфейса
      */
     public void clickSearchContainer() {
+        invalidateSnapshot();
         try {
-            RunWithWaitUtil.runWithPostWait(() -> {
+            RunWithWaitUtil.runUntil(() -> {
                 final WebElement searchContainer = wait.until(ExpectedConditions.elementToBeClickable(
-                        By.id("org.wikipedia.alpha:id/search_container")
+                        By.id(SEARCH_CONTAINER_ID)
                 ));
                 searchContainer.click();
                 System.out.println("Кликнули на контейнер поиска");
-            }, COMMON_WAIT_TIME);
+            }, "search_src_text is present", () -> LocatorProbe.isPresent(driver, By.id(SEARCH_INPUT_ID)), COMMON_WAIT_TIME);
         } catch (RuntimeException e) {
             System.out.println("Ошибка при клике на контейнер поиска: " + e.getMessage());
         }
@@ -96,47 +126,58 @@ public class WikipediaAppPage {
      * Вводит поисковый запрос в поле ввода
      */
     public void enterSearchQuery(String query) {
+        invalidateSnapshot();
         try {
-            RunWithWaitUtil.runWithPostWait(() -> {
-                final WebDriverWait longWait = new WebDriverWait(driver, Duration.ofSeconds(15));
+            RunWithWaitUtil.runUntil(() -> {
+                final WebDriverWait longWait = new TimedWebDriverWait(driver, Duration.ofSeconds(15));
                 final WebElement searchInput = longWait.until(ExpectedConditions.presenceOfElementLocated(
-                        By.id("org.wikipedia.alpha:id/search_src_text")
+                        By.id(SEARCH_INPUT_ID)
                 ));
                 searchInput.clear();
                 searchInput.sendKeys(query);
                 System.out.println("Введен запрос: " + query);
-            }, COMMON_WAIT_TIME);
+            }, "page_list_item_title is present", () -> LocatorProbe.isPresent(driver, By.id(RESULT_TITLE_ID)), COMMON_WAIT_TIME);
         } catch (RuntimeException e) {
             System.out.println("Ошибка при вводе поискового запроса: " + e.getMessage());
         }
     }
 
     /**
-     * Проверяет отображение контейнера поиска
+     * Проверяет отображение контейнера поиска по снимку экрана, без ожидания
      */
     public boolean isSearchContainerDisplayed() {
         try {
-            WebDriverWait shortWait = new WebDriverWait(driver, Duration.ofSeconds(5));
-            final WebElement container = shortWait.until(ExpectedConditions.presenceOfElementLocated(
-                    By.id("org.wikipedia.alpha:id/search_container")
-            ));
-            return container.isDisplayed();
+            return snapshot().isDisplayed(SEARCH_CONTAINER_ID);
         } catch (RuntimeException e) {
             return false;
         }
     }
 
+    /**
+     * Ожидает отображения контейнера поиска
+     */
+    public boolean waitForSearchContainer(int timeoutSeconds) {
+        return RunWithWaitUtil.waitUntil("search_container is displayed", () -> {
+            invalidateSnapshot();
+            return isSearchContainerDisplayed();
+        }, timeoutSeconds * 1000L);
+    }
+
     /**
      * Закрывает поисковый интерфейс, если он открыт
      */
     public void closeSearchIfOpen() {
         try {
-            List<WebElement> closeButtons = driver.findElements(By.id("org.wikipedia.alpha:id/search_close_btn"));
-            if (!closeButtons.isEmpty() && closeButtons.get(0).isDisplayed()) {
-                RunWithWaitUtil.runWithPostWait(() -> {
+            if (!snapshot().isDisplayed(SEARCH_CLOSE_ID)) {
+                return;
+            }
+            List<WebElement> closeButtons = LocatorProbe.findNow(driver, By.id(SEARCH_CLOSE_ID));
+            if (!closeButtons.isEmpty()) {
+                invalidateSnapshot();
+                RunWithWaitUtil.runUntil(() -> {
                     System.out.println("Закрываем поиск...");
                     closeButtons.get(0).click();
-                }, COMMON_WAIT_TIME);
+                }, "search_close_btn is gone", () -> LocatorProbe.isAbsent(driver, By.id(SEARCH_CLOSE_ID)), COMMON_WAIT_TIME);
             }
         } catch (RuntimeException e) {
         }
@@ -147,8 +188,7 @@ public class WikipediaAppPage {
      */
     public boolean isSearchOpen() {
         try {
-            List<WebElement> searchInputs = driver.findElements(By.id("org.wikipedia.alpha:id/search_src_text"));
-            return !searchInputs.isEmpty() && searchInputs.get(0).isDisplayed();
+            return snapshot().isDisplayed(SEARCH_INPUT_ID);
         } catch (RuntimeException e) {
             return false;
         }
@@ -159,11 +199,7 @@ public class WikipediaAppPage {
      */
     public boolean isSearchResultsDisplayed() {
         try {
-            WebDriverWait shortWait = new WebDriverWait(driver, Duration.ofSeconds(3));
-            final WebElement container = shortWait.until(ExpectedConditions.presenceOfElementLocated(
-                    By.id("org.wikipedia.alpha:id/search_results_container")
-            ));
-            return container.isDisplayed();
+            return snapshot().isDisplayed(SEARCH_RESULTS_ID);
         } catch (RuntimeException e) {
             return false;
         }
@@ -173,8 +209,9 @@ public class WikipediaAppPage {
      * Ожидает появления результатов поиска
      */
     public boolean waitForSearchResults(int timeoutSeconds) {
+        invalidateSnapshot();
         try {
-            WebDriverWait resultsWait = new WebDriverWait(driver, Duration.ofSeconds(timeoutSeconds));
+            WebDriverWait resultsWait = new TimedWebDriverWait(driver, Duration.ofSeconds(timeoutSeconds));
             resultsWait.until(ExpectedConditions.presenceOfAllElementsLocatedBy(
                     By.id("org.wikipedia.alpha:id/page_list_item_title")
             ));
@@ -200,62 +237,72 @@ public class WikipediaAppPage {
 
     /**
      * Кликает на первый результат в списке поиска
-     * Пробует разные способы клика для надежности
+     * Пробует разные способы клика для надежности, начиная с того, что чаще срабатывал в прошлых прогонах.
+     * Способ считается сработавшим, только если после него исчез список результатов
      */
     public void clickFirstSearchResult() {
+        invalidateSnapshot();
         try {
-            RunWithWaitUtil.runWithPostWait(() -> {
-                System.out.println("Пытаемся кликнуть на первый результат...");
-
-                // Способ 1: Обычный клик
-                try {
-                    final WebElement firstResult = wait.until(ExpectedConditions.elementToBeClickable(
-                            By.id("org.wikipedia.alpha:id/page_list_item_title")
-                    ));
-                    System.out.println("Найден первый результат: " + firstResult.getText());
-                    firstResult.click();
-                    System.out.println("Клик выполнен (способ 1)");
-                    return;
-                } catch (Exception e) {
-                    System.out.println("Способ 1 не сработал: " + e.getMessage());
-                }
-
-                // Способ 2: JavaScript клик
-                try {
-                    List<WebElement> results = driver.findElements(By.id("org.wikipedia.alpha:id/page_list_item_title"));
-                    if (!results.isEmpty()) {
-                        driver.executeScript("arguments[0].click();", results.get(0));
-                        System.out.println("Клик выполнен (способ 2 - JavaScript)");
-                        return;
-                    }
-                } catch (Exception e) {
-                    System.out.println("Способ 2 не сработал: " + e.getMessage());
-                }
-
-                // Способ 3: Tap по координатам
-                try {
-                    List<WebElement> results = driver.findElements(By.id("org.wikipedia.alpha:id/page_list_item_title"));
-                    if (!results.isEmpty()) {
-                        WebElement firstResult = results.get(0);
-                        int x = firstResult.getLocation().getX() + firstResult.getSize().getWidth() / 2;
-                        int y = firstResult.getLocation().getY() + firstResult.getSize().getHeight() / 2;
-
-                        driver.executeScript("mobile: clickGesture",
-                                Map.of("x", x, "y", y, "duration", 100));
-                        System.out.println("Клик выполнен (способ 3 - координаты)");
-                    }
-                } catch (Exception e) {
-                    System.out.println("Способ 3 не сработал: " + e.getMessage());
-                }
-
+            System.out.println("Пытаемся кликнуть на первый результат...");
+
+            final Map<String, BooleanSupplier> strategies = new LinkedHashMap<>();
+            strategies.put("click", this::clickFirstResult);
+            strategies.put("javascript", this::clickFirstResultWithScript);
+            strategies.put("clickGesture", this::tapFirstResult);
+
+            final String cacheKey = StrategyCache.key(PAGE_NAME, "firstSearchResultClick", AppiumDriverManager.getAppVersion());
+            final String clicked = StrategyCache.firstSuccessful(cacheKey, strategies,
+                    () -> RunWithWaitUtil.waitUntil("search_results_container is gone",
+                            () -> LocatorProbe.isAbsent(driver, By.id(SEARCH_RESULTS_ID)), COMMON_WAIT_TIME));
+            if (clicked == null) {
                 System.out.println("Все способы клика не сработали");
-
-            }, COMMON_WAIT_TIME);
+            }
         } catch (RuntimeException e) {
             System.out.println("Ошибка при клике на первый результат: " + e.getMessage());
         }
     }
 
+    /**
+     * Обычный клик по первому результату
+     */
+    private boolean clickFirstResult() {
+        final WebElement firstResult = wait.until(ExpectedConditions.elementToBeClickable(By.id(RESULT_TITLE_ID)));
+        System.out.println("Найден первый результат: " + firstResult.getText());
+        firstResult.click();
+        System.out.println("Клик выполнен (обычный клик)");
+        return true;
+    }
+
+    /**
+     * JavaScript клик по первому результату
+     */
+    private boolean clickFirstResultWithScript() {
+        final List<WebElement> results = LocatorProbe.findNow(driver, By.id(RESULT_TITLE_ID));
+        if (results.isEmpty()) {
+            return false;
+        }
+        driver.executeScript("arguments[0].click();", results.get(0));
+        System.out.println("Клик выполнен (JavaScript)");
+        return true;
+    }
+
+    /**
+     * Tap по координатам центра первого результата
+     */
+    private boolean tapFirstResult() {
+        final List<WebElement> results = LocatorProbe.findNow(driver, By.id(RESULT_TITLE_ID));
+        if (results.isEmpty()) {
+            return false;
+        }
+        final Rectangle bounds = results.get(0).getRect();
+        final int x = bounds.getX() + bounds.getWidth() / 2;
+        final int y = bounds.getY() + bounds.getHeight() / 2;
+
+        driver.executeScript("mobile: clickGesture", Map.of("x", x, "y", y, "duration", 100));
+        System.out.println("Клик выполнен (координаты)");
+        return true;
+    }
+
     /**
      * Получает заголовок первого результата в списке поиска
      */
@@ -275,23 +322,20 @@ public class WikipediaAppPage {
      * Пробует разные способы определить, что статья загрузилась
      */
     public boolean waitForArticleToLoad(int timeoutSeconds) {
+        invalidateSnapshot();
         try {
             System.out.println("Ожидание загрузки статьи...");
-            WebDriverWait articleWait = new WebDriverWait(driver, Duration.ofSeconds(timeoutSeconds));
+            WebDriverWait articleWait = new TimedWebDriverWait(driver, Duration.ofSeconds(timeoutSeconds));
 
             boolean articleLoaded = articleWait.until(driver -> {
                 try {
-                    List<WebElement> titleElements = driver.findElements(
-                            By.id("org.wikipedia.alpha:id/view_page_title_text")
-                    );
+                    List<WebElement> titleElements = LocatorProbe.findNow(driver, By.id(ARTICLE_TITLE_ID));
                     if (!titleElements.isEmpty() && titleElements.get(0).isDisplayed()) {
                         System.out.println("Заголовок статьи найден: " + titleElements.get(0).getText());
                         return true;
                     }
 
-                    List<WebElement> searchResults = driver.findElements(
-                            By.id("org.wikipedia.alpha:id/search_results_container")
-                    );
+                    List<WebElement> searchResults = LocatorProbe.findNow(driver, By.id(SEARCH_RESULTS_ID));
                     if (searchResults.isEmpty() || !searchResults.get(0).isDisplayed()) {
                         System.out.println("Результаты поиска скрыты - статья возможно загрузилась");
                         return true;
@@ -304,7 +348,8 @@ public class WikipediaAppPage {
             });
 
             if (articleLoaded) {
-                Thread.sleep(2000);
+                RunWithWaitUtil.waitUntil("article content is present",
+                        () -> LocatorProbe.probeDisplayedIds(driver, ARTICLE_TITLE_ID, ARTICLE_SCROLL_ID).isFound(), 2000);
             }
 
             return articleLoaded;
@@ -320,39 +365,128 @@ public class WikipediaAppPage {
      */
     public boolean isArticleOpen() {
         try {
-            if (isSearchOpen()) {
+            final PageSnapshot screen = snapshot();
+            if (screen.isDisplayed(SEARCH_INPUT_ID)) {
                 return false;
             }
 
-            String[] articleElements = {
-                    "org.wikipedia.alpha:id/view_page_title_text",
+            return screen.isAnyDisplayed(
+                    ARTICLE_TITLE_ID,
                     "org.wikipedia.alpha:id/page_actions_tab_layout",
-                    "org.wikipedia.alpha:id/page_scroll_view"
-            };
+                    ARTICLE_SCROLL_ID
+            );
+        } catch (Exception e) {
+            return false;
+        }
+    }
 
-            for (String elementId : articleElements) {
-                List<WebElement> elements = driver.findElements(By.id(elementId));
-                if (!elements.isEmpty() && elements.get(0).isDisplayed()) {
-                    return true;
-                }
+    /**
+     * Открывает главный экран напрямую через intent, без возврата кнопкой Назад
+     *
+     * @return true, если главный экран открылся
+     */
+    public boolean openMainScreenDirectly() {
+        invalidateSnapshot();
+        try {
+            startActivity(MAIN_ACTIVITY);
+            return RunWithWaitUtil.waitUntil("search_container is present",
+                    () -> LocatorProbe.isPresent(driver, By.id(SEARCH_CONTAINER_ID)), NAVIGATION_WAIT_TIME);
+        } catch (RuntimeException e) {
+            System.out.println("Не удалось открыть главный экран через intent: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Открывает экран поиска напрямую через intent.
+     * Если активити поиска недоступна, открывает главный экран и кликает на контейнер поиска
+     *
+     * @return true, если поле поиска отображается
+     */
+    public boolean openSearchDirectly() {
+        invalidateSnapshot();
+        try {
+            startActivity(SEARCH_ACTIVITY);
+        } catch (RuntimeException e) {
+            System.out.println("Активити поиска недоступна, открываем поиск через главный экран: " + e.getMessage());
+            if (TestDeadline.isExpired() || !openMainScreenDirectly()) {
+                return false;
             }
+            clickSearchContainer();
+        }
+        return RunWithWaitUtil.waitUntil("search_src_text is present",
+                () -> LocatorProbe.isPresent(driver, By.id(SEARCH_INPUT_ID)), NAVIGATION_WAIT_TIME);
+    }
 
-            return false;
-        } catch (Exception e) {
+    /**
+     * Открывает статью по заголовку через deep link Wikipedia, минуя поиск
+     * Язык Википедии задаётся свойством wikiLanguage (по умолчанию ru)
+     *
+     * @return true, если статья открылась
+     */
+    public boolean openArticleDirectly(final String articleTitle) {
+        invalidateSnapshot();
+        try {
+            final String language = System.getProperty("wikiLanguage", "ru");
+            final String url = "https://" + language + ".wikipedia.org/wiki/"
+                    + URLEncoder.encode(articleTitle.replace(' ', '_'), StandardCharsets.UTF_8);
+            driver.executeScript("mobile: deepLink", Map.of(
+                    "url", url,
+                    "package", AppiumDriverManager.getAppPackage(),
+                    "waitForLaunch", true
+            ));
+            System.out.println("Открыта ссылка: " + url);
+            return RunWithWaitUtil.waitUntil("article content is present",
+                    () -> LocatorProbe.probeDisplayedIds(driver, ARTICLE_TITLE_ID, ARTICLE_SCROLL_ID).isFound(),
+                    NAVIGATION_WAIT_TIME);
+        } catch (RuntimeException e) {
+            System.out.println("Не удалось открыть статью по ссылке: " + e.getMessage());
             return false;
         }
     }
 
     /**
-     * Возвращается назад из статьи или поиска
+     * Возвращается назад из статьи или поиска и ждёт смены экрана (не больше секунды).
+     * Назад из статьи ведёт на результаты поиска, а не на главный экран, поэтому ожидается любое изменение
+     * иерархии относительно экрана до нажатия, а не конкретный элемент
      */
     public void goBack() {
+        invalidateSnapshot();
         try {
+            final String before = driver.getPageSource();
             driver.navigate().back();
-            Thread.sleep(1000);
             System.out.println("Нажата кнопка Назад");
+            RunWithWaitUtil.waitUntil("screen changed after back", () -> !before.equals(driver.getPageSource()), 1000);
         } catch (Exception e) {
             System.out.println("Ошибка при нажатии Назад: " + e.getMessage());
         }
     }
+
+    /**
+     * Возвращает снимок иерархии текущего экрана, загружая его при необходимости одним запросом
+     * Снимок переиспользуется всеми проверками состояния до следующего действия на экране
+     */
+    private PageSnapshot snapshot() {
+        if (snapshot == null) {
+            snapshot = PageSnapshot.capture(driver);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Сбрасывает снимок экрана - вызывается перед любым действием, меняющим экран
+     */
+    private void invalidateSnapshot() {
+        snapshot = null;
+    }
+
+    /**
+     * Запускает активити приложения в новой задаче, очищая стек экранов
+     */
+    private void startActivity(final String activity) {
+        driver.executeScript("mobile: startActivity", Map.of(
+                "intent", AppiumDriverManager.getAppPackage() + "/" + activity,
+                "flags", NEW_CLEAR_TASK_FLAGS
+        ));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,187 @@
+package com.example.pages.web;
+
+import com.example.utils.HtmlStreamScanner;
+import com.example.utils.PagePerformance;
+import com.example.utils.SneakyThrowUtil;
+import com.example.utils.TestDeadline;
+import com.example.utils.WikiStandInServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Проверки Wikipedia без браузера.
+ * Страница загружается через общий {@link HttpClient} (HTTP/2, переиспользование соединений, переходы по редиректам)
+ * и разбирается потоковым {@link HtmlStreamScanner} - ищутся только элементы, нужные тестам.
+ * Видимость элемента приравнивается к его наличию в разметке. Объект хранит состояние одной "вкладки"
+ * и не потокобезопасен. Асинхронные проверки ({@link #fetchAsync}) не занимают поток, пока ждут ответа:
+ * разбор тела выполняется в небольшом пуле http.scan.threads, поэтому тысячи проверок в полёте не требуют тысяч потоков
+ */
+public class WikipediaHttpPage implements WikipediaWebOperations {
+
+    private static final String WIKI_LOGO = "p-logo";
+    private static final String SEARCH_INPUT = "searchInput";
+    private static final String ARTICLE_HEADING = "firstHeading";
+    private static final String BODY_CONTENT = "bodyContent";
+    private static final Set<String> WANTED_IDS = Set.of(WIKI_LOGO, SEARCH_INPUT, ARTICLE_HEADING, BODY_CONTENT);
+    private static final Set<String> TEXT_IDS = Set.of(ARTICLE_HEADING);
+
+    private static final String MAIN_PAGE_PATH = "/wiki/Заглавная_страница";
+    private static final String RANDOM_PAGE_PATH = "/wiki/Special:Random";
+    private static final String SEARCH_PATH = "/w/index.php?search=";
+    private static final String ARTICLE_PATH = "/wiki/";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(15);
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private static final ExecutorService SCAN_EXECUTOR = Executors.newFixedThreadPool(
+            Integer.getInteger("http.scan.threads", Math.max(4, Runtime.getRuntime().availableProcessors())), runnable -> {
+                final Thread thread = new Thread(runnable, "http-page-scan");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final String siteUrl;
+    private String currentUrl;
+    private Map<String, HtmlStreamScanner.Element> elements = Map.of();
+
+    public WikipediaHttpPage() {
+        this(WikiStandInServer.getBaseUrl());
+    }
+
+    public WikipediaHttpPage(final String baseUrl) {
+        this.siteUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.currentUrl = this.siteUrl + "/";
+    }
+
+    @Override
+    public boolean isMainPageContentAvailable() {
+        navigateIfNeeded(siteUrl + MAIN_PAGE_PATH);
+        return elements.containsKey(WIKI_LOGO) && elements.containsKey(BODY_CONTENT);
+    }
+
+    @Override
+    public void searchFor(final String query) {
+        navigate(siteUrl + SEARCH_PATH + URLEncoder.encode(query, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String getArticleHeadingText() {
+        final HtmlStreamScanner.Element heading = elements.get(ARTICLE_HEADING);
+        if (heading == null) {
+            throw new IllegalStateException("На странице " + currentUrl + " нет #" + ARTICLE_HEADING);
+        }
+        return heading.getText();
+    }
+
+    @Override
+    public void goToRandomPage() {
+        navigate(siteUrl + RANDOM_PAGE_PATH);
+    }
+
+    @Override
+    public void openArticle(final String articleTitle) {
+        navigateIfNeeded(siteUrl + ARTICLE_PATH + URLEncoder.encode(articleTitle.replace(' ', '_'), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean isSearchInputDisplayedAndEnabled() {
+        final HtmlStreamScanner.Element searchInput = elements.get(SEARCH_INPUT);
+        return searchInput != null && !searchInput.hasAttribute("disabled")
+                && !"hidden".equalsIgnoreCase(searchInput.getAttribute("type"));
+    }
+
+    @Override
+    public String getCurrentUrl() {
+        return currentUrl;
+    }
+
+    /**
+     * Без браузера метрики рендеринга недоступны
+     */
+    @Override
+    public List<PagePerformance.Sample> getPerformanceSamples() {
+        return List.of();
+    }
+
+    /**
+     * Загружает страницу асинхронно, не меняя состояние объекта - для массовых проверок.
+     * Ожидание ответа не занимает поток; блокирующий разбор тела выполняется в ограниченном пуле, а не в потоках
+     * HttpClient, поэтому число одновременно разбираемых страниц ограничено размером пула
+     *
+     * @return элементы страницы по id
+     */
+    public static CompletableFuture<Map<String, HtmlStreamScanner.Element>> fetchAsync(final URI uri) {
+        return CLIENT.sendAsync(request(uri, REQUEST_TIMEOUT), HttpResponse.BodyHandlers.ofInputStream())
+                .thenApplyAsync(response -> SneakyThrowUtil.sneakyGet(() -> scan(response)), SCAN_EXECUTOR);
+    }
+
+    /**
+     * Открывает URL поиска по запросу и возвращает заголовок страницы, на которую он привёл.
+     * Используется нагрузочным режимом ({@link com.example.load.SearchLoadGenerator})
+     */
+    public static CompletableFuture<String> searchHeadingAsync(final String siteUrl, final String query) {
+        return fetchAsync(URI.create(siteUrl + SEARCH_PATH + URLEncoder.encode(query, StandardCharsets.UTF_8)))
+                .thenApply(found -> found.containsKey(ARTICLE_HEADING) ? found.get(ARTICLE_HEADING).getText() : "");
+    }
+
+    private void navigateIfNeeded(final String url) {
+        if (!normalize(currentUrl).equals(normalize(url)) || elements.isEmpty()) {
+            navigate(url);
+        }
+    }
+
+    private void navigate(final String url) {
+        final HttpRequest request = request(URI.create(url), TestDeadline.clamp(REQUEST_TIMEOUT));
+        final HttpResponse<InputStream> response = SneakyThrowUtil.sneakyGet(
+                () -> CLIENT.send(request, HttpResponse.BodyHandlers.ofInputStream()));
+        elements = SneakyThrowUtil.sneakyGet(() -> scan(response));
+        currentUrl = response.uri().toString();
+    }
+
+    private static HttpRequest request(final URI uri, final Duration timeout) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(timeout.isZero() ? Duration.ofMillis(1) : timeout)
+                .header("User-Agent", "test-final-project/1.0 (browserless checks)")
+                .header("Accept", "text/html")
+                .GET()
+                .build();
+    }
+
+    /**
+     * Сканирует тело ответа и закрывает поток - недочитанный остаток страницы не загружается
+     */
+    private static Map<String, HtmlStreamScanner.Element> scan(final HttpResponse<InputStream> response) throws IOException {
+        try (Reader reader = new InputStreamReader(response.body(), StandardCharsets.UTF_8)) {
+            return HtmlStreamScanner.scan(reader, WANTED_IDS, TEXT_IDS);
+        }
+    }
+
+    private static String normalize(final String url) {
+        String normalized = URLDecoder.decode(url.replace("+", "%2B"), StandardCharsets.UTF_8);
+        final int fragment = normalized.indexOf('#');
+        if (fragment >= 0) {
+            normalized = normalized.substring(0, fragment);
+        }
+        return normalized.endsWith("/") ? normalized.substring(0, normalized.length() - 1) : normalized;
+    }
+}
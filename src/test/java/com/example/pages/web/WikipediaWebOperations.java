@@ -0,0 +1,71 @@
+package com.example.pages.web;
+
+import com.example.utils.PagePerformance;
+import com.example.utils.WebDriverManagerUtil;
+
+import java.util.List;
+
+/**
+ * Операции веб-тестов над Wikipedia.
+ * Реализации: {@link WikipediaWebPage} - через браузер, {@link WikipediaHttpPage} - через HTTP без браузера.
+ * Реализация выбирается свойством web.mode (browser/http), по умолчанию browser
+ */
+public interface WikipediaWebOperations {
+
+    /**
+     * Открывает главную страницу (если ещё не на ней) и проверяет наличие логотипа и основного контента
+     */
+    boolean isMainPageContentAvailable();
+
+    /**
+     * Выполняет поиск по указанному запросу
+     */
+    void searchFor(String query);
+
+    /**
+     * Текст заголовка текущей статьи
+     */
+    String getArticleHeadingText();
+
+    /**
+     * Переходит на случайную статью
+     */
+    void goToRandomPage();
+
+    /**
+     * Открывает статью по заголовку
+     */
+    void openArticle(String articleTitle);
+
+    /**
+     * Доступно ли поле поиска для ввода
+     */
+    boolean isSearchInputDisplayedAndEnabled();
+
+    /**
+     * Адрес текущей страницы
+     */
+    String getCurrentUrl();
+
+    /**
+     * Метрики производительности загруженных страниц (perf.capture); без браузера список пуст
+     */
+    List<PagePerformance.Sample> getPerformanceSamples();
+
+    /**
+     * Создаёт реализацию, заданную свойством web.mode. Для режима browser драйвер берётся из пула текущего потока
+     */
+    static WikipediaWebOperations create() {
+        if (isBrowserless()) {
+            return new WikipediaHttpPage();
+        }
+        return new WikipediaWebPage(WebDriverManagerUtil.getDriver());
+    }
+
+    /**
+     * Работает ли текущая конфигурация без браузера
+     */
+    static boolean isBrowserless() {
+        return "http".equalsIgnoreCase(System.getProperty("web.mode", "browser"));
+    }
+}
@@ -1,18 +1,45 @@
 package com.example.pages.web;
 
+import com.example.utils.PagePerformance;
+import com.example.utils.TimedWebDriverWait;
+import com.example.utils.WikiStandInServer;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
-public class WikipediaWebPage {
+public class WikipediaWebPage implements WikipediaWebOperations {
+
+    /**
+     * Способ навигации: UI - через элементы страницы, DIRECT - прямым переходом по URL
+     * Выбирается свойством web.navigation (ui/direct), по умолчанию ui
+     */
+    public enum NavigationMode {
+        UI, DIRECT;
+
+        public static NavigationMode fromSystemProperty() {
+            return "direct".equalsIgnoreCase(System.getProperty("web.navigation", "ui")) ? DIRECT : UI;
+        }
+    }
 
     private final WebDriver webDriver;
     private final WebDriverWait waitDriver;
-    private static final String BASE_URL = "https://ru.wikipedia.org/wiki/Заглавная_страница";
+    private final NavigationMode navigationMode;
+    private final String siteUrl;
+    private final List<PagePerformance.Sample> performanceSamples = new ArrayList<>();
+    private static final String MAIN_PAGE_PATH = "/wiki/Заглавная_страница";
+    private static final String RANDOM_PAGE_PATH = "/wiki/Special:Random";
+    private static final String SEARCH_PATH = "/w/index.php?search=";
+    private static final String ARTICLE_PATH = "/wiki/";
 
     private final By WIKI_LOGO = By.id("p-logo");
     private final By SEARCH_INPUT = By.id("searchInput");
@@ -21,20 +48,30 @@ public class WikipediaWebPage {
     private final By BODY_CONTENT = By.id("bodyContent");
 
     public WikipediaWebPage(final WebDriver webDriver) {
+        this(webDriver, NavigationMode.fromSystemProperty());
+    }
+
+    public WikipediaWebPage(final WebDriver webDriver, final NavigationMode navigationMode) {
         this.webDriver = webDriver;
-        this.waitDriver = new WebDriverWait(webDriver, Duration.ofSeconds(15));
+        this.waitDriver = new TimedWebDriverWait(webDriver, Duration.ofSeconds(15));
+        this.navigationMode = navigationMode;
+        final String baseUrl = WikiStandInServer.getBaseUrl();
+        this.siteUrl = baseUrl.substring(0, baseUrl.length() - 1);
     }
 
     /**
      * Проверяет доступность основного контента на главной странице
-     * Выполняет переход на базовый URL и проверяет отображение ключевых элементов:
+     * Выполняет переход на базовый URL (если браузер ещё не на нём) и проверяет отображение ключевых элементов:
      * логотипа Wikipedia и основного контентного блока
      */
+    @Override
     public boolean isMainPageContentAvailable() {
-        webDriver.get(BASE_URL);
+        navigateIfNeeded(siteUrl + MAIN_PAGE_PATH);
         try {
             waitDriver.until(ExpectedConditions.visibilityOfElementLocated(WIKI_LOGO));
-            return waitDriver.until(ExpectedConditions.visibilityOfElementLocated(BODY_CONTENT)).isDisplayed();
+            final boolean displayed = waitDriver.until(ExpectedConditions.visibilityOfElementLocated(BODY_CONTENT)).isDisplayed();
+            captureMainPagePerformance();
+            return displayed;
         } catch (RuntimeException e) {
             return false;
         }
@@ -42,9 +79,26 @@ public class WikipediaWebPage {
 
     /**
      * Выполняет поиск по указанному запросу на сайте.
-     * Ожидает появление поля ввода, очищает его, вводит текст запроса и отправляет форму
+     * В режиме DIRECT сразу открывает URL поиска, иначе - через форму поиска
      */
+    @Override
     public void searchFor(final String query) {
+        final Object previousDocument = currentDocument();
+        if (navigationMode == NavigationMode.DIRECT) {
+            if (navigateIfNeeded(siteUrl + SEARCH_PATH + URLEncoder.encode(query, StandardCharsets.UTF_8))) {
+                capturePerformance("search", previousDocument);
+            }
+            return;
+        }
+        searchViaForm(query);
+        capturePerformance("search", previousDocument);
+    }
+
+    /**
+     * Выполняет поиск через форму независимо от режима навигации.
+     * Ожидает появление поля ввода, очищает его, вводит текст запроса и отправляет форму
+     */
+    public void searchViaForm(final String query) {
         final WebElement searchInput = waitDriver.until(ExpectedConditions.visibilityOfElementLocated(SEARCH_INPUT));
         searchInput.clear();
         searchInput.sendKeys(query);
@@ -55,17 +109,35 @@ public class WikipediaWebPage {
      * Извлекает и возвращает текст заголовка текущей статьи
      * Ожидает появление элемента заголовка статьи и возвращает его текст
      */
+    @Override
     public String getArticleHeadingText() {
         return waitDriver.until(ExpectedConditions.visibilityOfElementLocated(ARTICLE_HEADING)).getText().trim();
     }
 
     /**
      * Переходит на случайную страницу Wikipedia
-     * Находит и кликает по ссылке "Случайная статья", затем ожидает загрузку основного контента
+     * В режиме DIRECT открывает Special:Random по URL, иначе кликает по ссылке "Случайная статья",
+     * затем ожидает загрузку основного контента
      */
+    @Override
     public void goToRandomPage() {
-        final WebElement randomLink = waitDriver.until(ExpectedConditions.elementToBeClickable(RANDOM_PAGE_LINK));
-        randomLink.click();
+        final Object previousDocument = currentDocument();
+        if (navigationMode == NavigationMode.DIRECT) {
+            webDriver.get(siteUrl + RANDOM_PAGE_PATH);
+        } else {
+            final WebElement randomLink = waitDriver.until(ExpectedConditions.elementToBeClickable(RANDOM_PAGE_LINK));
+            randomLink.click();
+        }
+        waitDriver.until(ExpectedConditions.visibilityOfElementLocated(BODY_CONTENT));
+        capturePerformance("random", previousDocument);
+    }
+
+    /**
+     * Открывает статью по заголовку прямым переходом по URL
+     */
+    @Override
+    public void openArticle(final String articleTitle) {
+        navigateIfNeeded(siteUrl + ARTICLE_PATH + URLEncoder.encode(articleTitle.replace(' ', '_'), StandardCharsets.UTF_8));
         waitDriver.until(ExpectedConditions.visibilityOfElementLocated(BODY_CONTENT));
     }
 
@@ -73,8 +145,81 @@ public class WikipediaWebPage {
      * Проверяет состояние поля поиска на доступность для взаимодействия
      * Ожидает появление поля ввода и проверяет, что оно отображается и активно
      */
+    @Override
     public boolean isSearchInputDisplayedAndEnabled() {
         final WebElement searchInput = waitDriver.until(ExpectedConditions.visibilityOfElementLocated(SEARCH_INPUT));
         return searchInput.isDisplayed() && searchInput.isEnabled();
     }
+
+    @Override
+    public String getCurrentUrl() {
+        return webDriver.getCurrentUrl();
+    }
+
+    /**
+     * Метрики страниц, снятые этим page object'ом (при perf.capture=true): главная, поиск, случайная статья
+     */
+    @Override
+    public List<PagePerformance.Sample> getPerformanceSamples() {
+        return Collections.unmodifiableList(performanceSamples);
+    }
+
+    /**
+     * Снимает метрики главной страницы, если этот документ ещё не снимался
+     */
+    private void captureMainPagePerformance() {
+        if (!PagePerformance.isEnabled()) {
+            return;
+        }
+        final Object document = PagePerformance.documentId(webDriver);
+        if (performanceSamples.stream().anyMatch(sample -> sample.getDocument().equals(document))) {
+            return;
+        }
+        capturePerformance("main", null);
+    }
+
+    /**
+     * Документ до навигации - чтобы метрики снимались с новой страницы, а не со старой
+     */
+    private Object currentDocument() {
+        return PagePerformance.isEnabled() ? PagePerformance.documentId(webDriver) : null;
+    }
+
+    private void capturePerformance(final String page, final Object previousDocument) {
+        if (!PagePerformance.isEnabled()) {
+            return;
+        }
+        final PagePerformance.Sample sample = PagePerformance.capture(webDriver, page, previousDocument);
+        if (sample != null) {
+            performanceSamples.add(sample);
+        }
+    }
+
+    /**
+     * Переходит по URL, только если браузер ещё не находится на этой странице
+     *
+     * @return был ли выполнен переход
+     */
+    private boolean navigateIfNeeded(final String url) {
+        if (normalize(webDriver.getCurrentUrl()).equals(normalize(url))) {
+            return false;
+        }
+        webDriver.get(url);
+        return true;
+    }
+
+    /**
+     * Приводит URL к виду для сравнения: декодирует, отбрасывает якорь и завершающий слэш
+     */
+    private static String normalize(final String url) {
+        if (url == null) {
+            return "";
+        }
+        String normalized = URLDecoder.decode(url.replace("+", "%2B"), StandardCharsets.UTF_8);
+        final int fragment = normalized.indexOf('#');
+        if (fragment >= 0) {
+            normalized = normalized.substring(0, fragment);
+        }
+        return normalized.endsWith("/") ? normalized.substring(0, normalized.length() - 1) : normalized;
+    }
 }
\ No newline at end of file
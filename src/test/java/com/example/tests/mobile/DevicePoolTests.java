@@ -0,0 +1,102 @@
+package com.example.tests.mobile;
+
+import com.example.utils.DevicePool;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Проверки пула устройств против локальной заглушки Appium-сервера:
+ * /healthy/status отвечает как исправный сервер, /broken/status - ошибкой
+ */
+public class DevicePoolTests {
+
+    private HttpServer fakeAppium;
+    private String baseUrl;
+
+    @BeforeClass
+    public void startFakeAppium() throws IOException {
+        fakeAppium = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        fakeAppium.createContext("/healthy/status", exchange -> {
+            final byte[] body = "{\"value\":{\"ready\":true}}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        fakeAppium.createContext("/broken/status", exchange -> {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        fakeAppium.start();
+        baseUrl = "http://" + fakeAppium.getAddress().getHostString() + ":" + fakeAppium.getAddress().getPort();
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopFakeAppium() {
+        fakeAppium.stop(0);
+    }
+
+    @Test
+    public void testDevicesAreReadFromProperties() {
+        final Properties properties = new Properties();
+        properties.setProperty("devices", "emulator-5554, emulator-5556");
+        properties.setProperty("emulator-5554.url", baseUrl + "/healthy");
+        properties.setProperty("emulator-5554.systemPort", "8200");
+        properties.setProperty("emulator-5556.url", baseUrl + "/healthy");
+        properties.setProperty("emulator-5556.chromedriverPort", "9516");
+
+        final List<DevicePool.Device> devices = DevicePool.fromProperties(properties).getDevices();
+
+        Assert.assertEquals(devices.size(), 2);
+        Assert.assertEquals(devices.get(0).getUdid(), "emulator-5554");
+        Assert.assertEquals(devices.get(0).getSystemPort(), 8200);
+        Assert.assertEquals(devices.get(1).getChromedriverPort(), 9516);
+    }
+
+    @Test
+    public void testUnhealthyDeviceIsQuarantined() {
+        final DevicePool.Device broken = new DevicePool.Device("emulator-5554", baseUrl + "/broken", 8200, 9515);
+        final DevicePool.Device healthy = new DevicePool.Device("emulator-5556", baseUrl + "/healthy", 8201, 9516);
+        final DevicePool pool = new DevicePool(List.of(broken, healthy));
+
+        final DevicePool.Device acquired = pool.acquire(null);
+
+        Assert.assertEquals(acquired, healthy);
+        Assert.assertTrue(pool.isQuarantined(broken));
+        pool.release(acquired);
+        Assert.assertEquals(pool.acquire(null), healthy, "Устройство в карантине не должно выдаваться повторно");
+    }
+
+    @Test
+    public void testPreferredDeviceIsReturnedToSameWorker() {
+        final DevicePool.Device first = new DevicePool.Device("emulator-5554", baseUrl + "/healthy", 8200, 9515);
+        final DevicePool.Device second = new DevicePool.Device("emulator-5556", baseUrl + "/healthy", 8201, 9516);
+        final DevicePool pool = new DevicePool(List.of(first, second));
+
+        final DevicePool.Device acquired = pool.acquire(null);
+        final DevicePool.Device other = pool.acquire(null);
+        pool.release(acquired);
+        pool.release(other);
+
+        Assert.assertEquals(pool.acquire(acquired), acquired);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testAllDevicesQuarantinedFailsFast() {
+        final DevicePool pool = new DevicePool(List.of(
+                new DevicePool.Device("emulator-5554", baseUrl + "/broken", 8200, 9515)));
+
+        pool.acquire(null);
+    }
+}
@@ -2,23 +2,20 @@ package com.example.tests.mobile;
 
 import com.example.pages.mobile.WikipediaAppPage;
 import com.example.utils.AppiumDriverManager;
-import com.example.utils.RunWithWaitUtil;
+import com.example.utils.TestDeadline;
+import com.example.utils.TimeBudget;
 import io.appium.java_client.android.AndroidDriver;
 import org.testng.Assert;
 import org.testng.annotations.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class WikipediaMobileTests {
-    private AndroidDriver driver;
-    private WikipediaAppPage page;
+    private final ThreadLocal<WikipediaAppPage> appPage = new ThreadLocal<>();
 
     @BeforeMethod
     public void setUp() {
         try {
-            RunWithWaitUtil.runWithPostWait(() -> {
-                driver = AppiumDriverManager.getDriver();
-            }, 3000);
-            page = new WikipediaAppPage(driver);
+            final AndroidDriver driver = AppiumDriverManager.getDriver();
+            appPage.set(new WikipediaAppPage(driver));
             resetToMainScreen();
         } catch (RuntimeException e) {
             System.out.println("Ошибка при инициализации теста: " + e.getMessage());
@@ -29,36 +26,48 @@ public class WikipediaMobileTests {
     @AfterMethod
     public void tearDown() {
         try {
-            RunWithWaitUtil.runWithPostWait(this::resetToMainScreen, 3000);
+            AppiumDriverManager.releaseDriver();
         } catch (RuntimeException e) {
             System.out.println("Ошибка при очистке после теста: " + e.getMessage());
         } finally {
-            AppiumDriverManager.quitDriver();
-            driver = null;
+            appPage.remove();
         }
     }
 
+    @AfterClass(alwaysRun = true)
+    public void shutDown() {
+        AppiumDriverManager.quitAllDrivers();
+    }
+
+    private WikipediaAppPage page() {
+        return appPage.get();
+    }
+
     private void resetToMainScreen() {
         try {
-            for (int i = 0; i < 5; i++) {
+            // Intent открывает главный экран сразу, без предварительной проверки текущего экрана;
+            // возврат кнопкой Назад - только если intent не сработал
+            if (page().openMainScreenDirectly()) {
+                System.out.println("Главный экран открыт через intent ✓");
+                return;
+            }
+
+            for (int i = 0; i < 5 && !TestDeadline.isExpired(); i++) {
                 try {
-                    if (page.isSearchContainerDisplayed()) {
+                    if (page().isSearchContainerDisplayed()) {
                         break;
                     }
-                    page.goBack();
+                    page().goBack();
                 } catch (RuntimeException e) {
                     System.out.println(e.getMessage());
                 }
             }
 
-            page.closeSearchIfOpen();
+            page().closeSearchIfOpen();
 
-            final AtomicInteger attempts = new AtomicInteger(0);
-            while (attempts.get() < 10 && !page.isSearchContainerDisplayed()) {
-                RunWithWaitUtil.runWithPreWait(attempts::incrementAndGet, 1000);
-            }
+            final boolean mainScreenLoaded = page().waitForSearchContainer(10);
 
-            if (page.isSearchContainerDisplayed()) {
+            if (mainScreenLoaded) {
                 System.out.println("Главный экран успешно загружен ✓");
             } else {
                 System.out.println("Предупреждение: главный экран может быть не загружен");
@@ -69,60 +78,61 @@ public class WikipediaMobileTests {
         }
     }
 
-    @Test
+    @Test(groups = "smoke")
+    @TimeBudget(seconds = 30)
     public void testMainScreenDisplay() {
-        Assert.assertTrue(page.isSearchContainerDisplayed(),
+        Assert.assertTrue(page().waitForSearchContainer(5),
                 "Контейнер поиска должен отображаться на главном экране");
     }
 
     @Test
+    @TimeBudget(seconds = 60)
     public void testSearchArticle() {
-        page.clickSearchContainer();
-        Assert.assertTrue(page.isSearchOpen(), "Поисковый интерфейс должен быть открыт");
+        page().clickSearchContainer();
+        Assert.assertTrue(page().isSearchOpen(), "Поисковый интерфейс должен быть открыт");
 
-        page.enterSearchQuery("Java");
+        page().enterSearchQuery("Java");
 
-        final boolean resultsAppeared = page.waitForSearchResults(10);
+        final boolean resultsAppeared = page().waitForSearchResults(10);
         Assert.assertTrue(resultsAppeared, "Результаты поиска должны появиться");
 
-        final int resultsCount = page.getSearchResultsCount();
+        final int resultsCount = page().getSearchResultsCount();
         System.out.println("Найдено результатов: " + resultsCount);
         Assert.assertTrue(resultsCount > 0, "Должны быть найдены результаты поиска");
 
     }
 
     @Test
-    public void testOpenArticleAndCheckTitle() throws InterruptedException {
-        page.clickSearchContainer();
-        Assert.assertTrue(page.isSearchOpen(), "Поиск должен быть открыт");
+    @TimeBudget(seconds = 90)
+    public void testOpenArticleAndCheckTitle() {
+        page().clickSearchContainer();
+        Assert.assertTrue(page().isSearchOpen(), "Поиск должен быть открыт");
 
-        page.enterSearchQuery("Java");
+        page().enterSearchQuery("Java");
 
-        final boolean resultsAppeared = page.waitForSearchResults(15);
+        final boolean resultsAppeared = page().waitForSearchResults(15);
         Assert.assertTrue(resultsAppeared, "Результаты поиска должны появиться");
 
-        Thread.sleep(2000); // Пауза для стабилизации
-
-        final int resultsCount = page.getSearchResultsCount();
+        final int resultsCount = page().getSearchResultsCount();
         System.out.println("Найдено результатов: " + resultsCount);
         Assert.assertTrue(resultsCount > 0, "Должны быть найдены результаты поиска");
 
-        final String firstResultTitle = page.getFirstResultTitle();
+        final String firstResultTitle = page().getFirstResultTitle();
         System.out.println("Первый результат: " + firstResultTitle);
         Assert.assertFalse(firstResultTitle.isEmpty(), "Заголовок не должен быть пустым");
 
         final String expectedTitlePart = firstResultTitle.substring(0, Math.min(10, firstResultTitle.length()));
 
-        page.clickFirstSearchResult();
+        page().clickFirstSearchResult();
 
-        final boolean articleLoaded = page.waitForArticleToLoad(15);
+        final boolean articleLoaded = page().waitForArticleToLoad(15);
         Assert.assertTrue(articleLoaded, "Статья должна загрузиться");
 
-        final boolean isArticleOpen = page.isArticleOpen();
+        final boolean isArticleOpen = page().isArticleOpen();
         System.out.println("Статья открыта: " + isArticleOpen);
 
         if (isArticleOpen) {
-            final String articleTitle = page.getArticleTitle();
+            final String articleTitle = page().getArticleTitle();
             System.out.println("Заголовок статьи: " + articleTitle);
 
             Assert.assertFalse(articleTitle.isEmpty(), "Заголовок статьи не должен быть пустым");
@@ -133,18 +143,31 @@ public class WikipediaMobileTests {
                     "Заголовок статьи должен соответствовать выбранному результату"
             );
 
-            final boolean resultsStillVisible = page.isSearchResultsDisplayed();
+            final boolean resultsStillVisible = page().isSearchResultsDisplayed();
             System.out.println("Результаты поиска отображаются: " + resultsStillVisible);
             Assert.assertFalse(resultsStillVisible, "Результаты поиска не должны отображаться");
 
         } else {
             System.out.println("Статья не открылась полностью, возможно показывается предпросмотр");
 
-            String articleTitle = page.getArticleTitle();
+            String articleTitle = page().getArticleTitle();
             if (!articleTitle.isEmpty()) {
                 System.out.println("Найден заголовок в предпросмотре: " + articleTitle);
             }
         }
 
     }
+
+    @Test
+    @TimeBudget(seconds = 45)
+    public void testOpenArticleByDeepLink() {
+        final boolean articleOpened = page().openArticleDirectly("Java");
+        Assert.assertTrue(articleOpened, "Статья должна открыться по ссылке");
+
+        Assert.assertTrue(page().isArticleOpen(), "Должна отображаться статья, а не поиск");
+
+        final String articleTitle = page().getArticleTitle();
+        System.out.println("Заголовок статьи: " + articleTitle);
+        Assert.assertFalse(articleTitle.isEmpty(), "Заголовок статьи не должен быть пустым");
+    }
 }
\ No newline at end of file
@@ -0,0 +1,112 @@
+package com.example.tests.utils;
+
+import com.example.listeners.SuiteOrchestrator;
+import com.example.utils.DurationHistory;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Оценка длительности тестов по истории и прогноз длительности блока при планировании прогона
+ */
+public class DurationPlanningTests {
+
+    private static final String TEST = "com.example.tests.web.WikipediaWebTests#testSearch";
+
+    private static DurationHistory history(final String... lines) throws IOException {
+        final Path file = Files.createTempFile("test-durations", ".tsv");
+        file.toFile().deleteOnExit();
+        Files.write(file, String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+        return DurationHistory.load(file);
+    }
+
+    private static String line(final String test, final long millis, final String status) {
+        return "1700000000000\t" + test + "\t" + millis + "\t" + status;
+    }
+
+    @Test
+    public void testEstimateIsMedianOfRecentSuccessfulRuns() throws IOException {
+        final DurationHistory history = history(
+                line(TEST, 900, "SUCCESS"),
+                line(TEST, 100, "SUCCESS"),
+                line(TEST, 50_000, "FAILURE"),
+                line(TEST, 300, "SUCCESS"));
+
+        Assert.assertEquals(history.estimate(TEST), Long.valueOf(300), "Падения не влияют, пока есть успешные запуски");
+    }
+
+    @Test
+    public void testEstimateUsesOnlyLastFiveRuns() throws IOException {
+        final DurationHistory history = history(
+                line(TEST, 10_000, "SUCCESS"),
+                line(TEST, 10_000, "SUCCESS"),
+                line(TEST, 10_000, "SUCCESS"),
+                line(TEST, 100, "SUCCESS"),
+                line(TEST, 200, "SUCCESS"),
+                line(TEST, 300, "SUCCESS"),
+                line(TEST, 400, "SUCCESS"),
+                line(TEST, 500, "SUCCESS"));
+
+        Assert.assertEquals(history.estimate(TEST), Long.valueOf(300));
+    }
+
+    @Test
+    public void testEstimateFallsBackToFailedRuns() throws IOException {
+        final DurationHistory history = history(
+                line(TEST, 700, "FAILURE"),
+                line(TEST, 200, "FAILURE"));
+
+        Assert.assertEquals(history.estimate(TEST), Long.valueOf(700), "Для чётного числа запусков - верхняя медиана");
+        Assert.assertNull(history.estimate("com.example.tests.web.WikipediaWebTests#neverRun"));
+    }
+
+    @Test
+    public void testCorruptedLinesAreSkipped() throws IOException {
+        final DurationHistory history = history(
+                "обрезанная строка",
+                line(TEST, 400, "SUCCESS"),
+                "1700000000000\t" + TEST + "\tне-число\tSUCCESS",
+                "",
+                line(TEST, 600, "SUCCESS"));
+
+        Assert.assertEquals(history.estimate(TEST), Long.valueOf(600));
+    }
+
+    @Test
+    public void testAppendUpdatesEstimateAndFile() throws IOException {
+        final Path file = Files.createTempFile("test-durations", ".tsv");
+        file.toFile().deleteOnExit();
+        Files.delete(file);
+        final DurationHistory history = DurationHistory.load(file);
+        Assert.assertNull(history.estimate(TEST));
+
+        history.append(List.of(new DurationHistory.Sample(TEST, 1_200, true)));
+
+        Assert.assertEquals(history.estimate(TEST), Long.valueOf(1_200));
+        Assert.assertEquals(DurationHistory.load(file).estimate(TEST), Long.valueOf(1_200));
+    }
+
+    @Test
+    public void testMakespanSingleWorkerIsSum() {
+        Assert.assertEquals(SuiteOrchestrator.makespan(List.of(5L, 4L, 3L), 1), 12);
+        Assert.assertEquals(SuiteOrchestrator.makespan(List.of(), 4), 0);
+    }
+
+    @Test
+    public void testMakespanMoreWorkersThanTests() {
+        Assert.assertEquals(SuiteOrchestrator.makespan(List.of(5L, 4L, 3L), 8), 5);
+    }
+
+    @Test
+    public void testMakespanListScheduling() {
+        Assert.assertEquals(SuiteOrchestrator.makespan(List.of(5L, 4L, 3L, 3L, 3L), 2), 10,
+                "5 | 4, 3 -> 7 | 3 -> 8 | 3 -> 10");
+        Assert.assertEquals(SuiteOrchestrator.makespan(List.of(3L, 3L, 3L, 4L, 5L), 2), 11,
+                "Короткие тесты первыми оставляют длинный хвост");
+    }
+}
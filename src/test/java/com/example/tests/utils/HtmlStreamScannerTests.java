@@ -0,0 +1,131 @@
+package com.example.tests.utils;
+
+import com.example.utils.HtmlStreamScanner;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Разбор HTML потоковым сканером без браузера и сети
+ */
+public class HtmlStreamScannerTests {
+
+    private static Map<String, HtmlStreamScanner.Element> scan(final String html, final Set<String> wantedIds,
+                                                              final Set<String> textIds) throws IOException {
+        return HtmlStreamScanner.scan(new StringReader(html), wantedIds, textIds);
+    }
+
+    @Test
+    public void testNestedTagsWithSameName() throws IOException {
+        final Map<String, HtmlStreamScanner.Element> found = scan(
+                "<div id=\"bodyContent\"><div>первый</div> <div><div>второй</div></div> хвост</div>"
+                        + "<div id=\"after\">после</div>",
+                Set.of("bodyContent", "after"), Set.of("bodyContent", "after"));
+
+        Assert.assertEquals(found.get("bodyContent").getText(), "первый второй хвост");
+        Assert.assertEquals(found.get("bodyContent").getTagName(), "div");
+        Assert.assertEquals(found.get("after").getText(), "после");
+    }
+
+    @Test
+    public void testRawTextTagsAndCommentsAreSkipped() throws IOException {
+        final Map<String, HtmlStreamScanner.Element> found = scan(
+                "<script>var html = \"<h1 id='firstHeading'>из скрипта</h1>\";</script>"
+                        + "<style>h1 > span { color: red }</style>"
+                        + "<!-- <h1 id=\"firstHeading\">из комментария</h1> -->"
+                        + "<h1 id=\"firstHeading\">Java</h1>",
+                Set.of("firstHeading"), Set.of("firstHeading"));
+
+        Assert.assertEquals(found.get("firstHeading").getText(), "Java");
+    }
+
+    @Test
+    public void testCommentClosedAfterExtraDashes() throws IOException {
+        final Map<String, HtmlStreamScanner.Element> found = scan(
+                "<!-- x ---><h1 id=\"firstHeading\">Java</h1>"
+                        + "<script>a = 1;</scr</script><div id=\"after\">после</div>",
+                Set.of("firstHeading", "after"), Set.of("firstHeading", "after"));
+
+        Assert.assertEquals(found.get("firstHeading").getText(), "Java");
+        Assert.assertEquals(found.get("after").getText(), "после");
+    }
+
+    @Test
+    public void testEntitiesInTextAndAttributes() throws IOException {
+        final Map<String, HtmlStreamScanner.Element> found = scan(
+                "<input id=\"searchInput\" placeholder=\"Искать &quot;в Википедии&quot;\" disabled>"
+                        + "<h1 id=\"firstHeading\">Tom &amp; Jerry&nbsp;&#x41;&#66; &unknown; &amp</h1>",
+                Set.of("searchInput", "firstHeading"), Set.of("firstHeading"));
+
+        Assert.assertEquals(found.get("searchInput").getAttribute("placeholder"), "Искать \"в Википедии\"");
+        Assert.assertTrue(found.get("searchInput").hasAttribute("disabled"));
+        Assert.assertEquals(found.get("firstHeading").getText(), "Tom & Jerry AB &unknown; &amp");
+    }
+
+    @Test
+    public void testLessThanSignInText() throws IOException {
+        final Map<String, HtmlStreamScanner.Element> found = scan(
+                "<h1 id=\"firstHeading\">a < b, 1 <2</h1><div id=\"bodyContent\"></div>",
+                Set.of("firstHeading", "bodyContent"), Set.of("firstHeading"));
+
+        Assert.assertEquals(found.get("firstHeading").getText(), "a < b, 1 <2");
+        Assert.assertNotNull(found.get("bodyContent"), "Закрывающий тег после '<' в тексте должен распознаваться");
+    }
+
+    @Test
+    public void testMissingElementIsAbsent() throws IOException {
+        final Map<String, HtmlStreamScanner.Element> found = scan("<div id=\"p-logo\"></div>",
+                Set.of("p-logo", "firstHeading"), Set.of("firstHeading"));
+
+        Assert.assertNotNull(found.get("p-logo"));
+        Assert.assertNull(found.get("firstHeading"));
+    }
+
+    @Test
+    public void testReadingStopsOnceAllElementsAreFound() throws IOException {
+        final StringBuilder tail = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            tail.append("<p>абзац ").append(i).append("</p>");
+        }
+        final String head = "<div id=\"p-logo\"></div><h1 id=\"firstHeading\">Заголовок</h1>";
+        final CountingReader reader = new CountingReader(new StringReader(head + tail));
+
+        final Map<String, HtmlStreamScanner.Element> found = HtmlStreamScanner.scan(reader,
+                Set.of("p-logo", "firstHeading"), Set.of("firstHeading"));
+
+        Assert.assertEquals(found.get("firstHeading").getText(), "Заголовок");
+        Assert.assertTrue(reader.count < head.length() + 16 * 1024,
+                "Прочитано " + reader.count + " символов из " + (head.length() + tail.length()));
+    }
+
+    /**
+     * Считает символы, которые сканер запросил у источника (с учётом буферизации)
+     */
+    private static final class CountingReader extends Reader {
+        private final Reader delegate;
+        private long count;
+
+        private CountingReader(final Reader delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read(final char[] buffer, final int offset, final int length) throws IOException {
+            final int read = delegate.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.tests.utils;
+
+import com.example.utils.LatencyHistogram;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Корзины, перцентили и сводные значения гистограммы задержек
+ */
+public class LatencyHistogramTests {
+
+    /**
+     * Погрешность лог-линейных корзин: 32 корзины на степень двойки
+     */
+    private static final double RELATIVE_ERROR = 1.0 / 32;
+
+    @Test
+    public void testSmallValuesAreExact() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 0; value < 64; value++) {
+            histogram.record(value);
+        }
+
+        Assert.assertEquals(histogram.percentile(0.5), 31);
+        Assert.assertEquals(histogram.percentile(1.0), 63);
+        Assert.assertEquals(histogram.countAtOrBelow(0), 1);
+        Assert.assertEquals(histogram.countAtOrBelow(62), 63);
+        Assert.assertEquals(histogram.countAtOrBelow(63), 64);
+    }
+
+    @Test
+    public void testBucketBoundaries() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(64);
+        histogram.record(66);
+        histogram.record(4095);
+        histogram.record(4096);
+
+        Assert.assertEquals(histogram.countAtOrBelow(63), 0);
+        Assert.assertEquals(histogram.countAtOrBelow(64), 0, "Корзина [64, 65] учитывается только целиком");
+        Assert.assertEquals(histogram.countAtOrBelow(65), 1);
+        Assert.assertEquals(histogram.countAtOrBelow(67), 2);
+        Assert.assertEquals(histogram.countAtOrBelow(4095), 3);
+        Assert.assertEquals(histogram.countAtOrBelow(4096 + 127), 4, "Над 4096 корзина шириной 128");
+        Assert.assertEquals(histogram.percentile(0.25), 65, "Перцентиль - верхняя граница корзины");
+        Assert.assertEquals(histogram.percentile(1.0), 4096, "Перцентиль не превышает максимум");
+    }
+
+    @Test
+    public void testPercentileRelativeError() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            final long value = 64 + (long) (random.nextDouble() * 10_000_000_000L);
+            final LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            histogram.record(value + 1_000_000_000_000L);
+
+            final long p50 = histogram.percentile(0.5);
+            Assert.assertTrue(p50 >= value && p50 <= value * (1 + RELATIVE_ERROR), value + " -> " + p50);
+        }
+    }
+
+    @Test
+    public void testOutOfRangeValuesAreClamped() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        Assert.assertEquals(histogram.getCount(), 2);
+        Assert.assertEquals(histogram.countAtOrBelow(0), 1);
+        Assert.assertEquals(histogram.getMaxMicros(), (1L << 41) - 1);
+        Assert.assertEquals(histogram.percentile(1.0), (1L << 41) - 1);
+    }
+
+    @Test
+    public void testMaxAndMean() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(histogram.getMeanMicros(), 0.0);
+        Assert.assertEquals(histogram.percentile(0.99), 0);
+
+        histogram.record(100);
+        histogram.record(300);
+        histogram.record(2_000);
+
+        Assert.assertEquals(histogram.getCount(), 3);
+        Assert.assertEquals(histogram.getSumMicros(), 2_400);
+        Assert.assertEquals(histogram.getMaxMicros(), 2_000);
+        Assert.assertEquals(histogram.getMeanMicros(), 800.0, 1e-9);
+    }
+
+    @Test
+    public void testRecordCorrectedAddsMissedRequests() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordCorrected(1_000, 300);
+
+        Assert.assertEquals(histogram.getCount(), 3, "1000, 700 и 400 мкс");
+        Assert.assertEquals(histogram.getSumMicros(), 2_100);
+
+        histogram.recordCorrected(1_000, 0);
+        Assert.assertEquals(histogram.getCount(), 4, "Без интервала поправки нет");
+    }
+
+    @Test
+    public void testConcurrentRecord() throws Exception {
+        final int threads = 8;
+        final int values = 10_000;
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (long value = 1; value <= values; value++) {
+                        histogram.record(value);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(histogram.getCount(), (long) threads * values);
+        Assert.assertEquals(histogram.getSumMicros(), threads * (long) values * (values + 1) / 2);
+        Assert.assertEquals(histogram.getMaxMicros(), values);
+        Assert.assertEquals(histogram.getMeanMicros(), (values + 1) / 2.0, 1e-9);
+        Assert.assertEquals(histogram.countAtOrBelow(63), threads * 63L);
+        assertPercentile(histogram.percentile(0.5), 5_000);
+        assertPercentile(histogram.percentile(0.99), 9_900);
+        Assert.assertEquals(histogram.percentile(1.0), values);
+    }
+
+    private static void assertPercentile(final long actual, final long exact) {
+        Assert.assertTrue(actual >= exact && actual <= exact * (1 + RELATIVE_ERROR),
+                "Ожидалось " + exact + " с погрешностью корзины, получено " + actual);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.tests.utils;
+
+import com.example.utils.TestImpactAnalyzer;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Выбор тестов по изменениям: разбор diff, сопоставление строк с методами и граф вызовов по target/test-classes
+ */
+public class TestImpactAnalyzerTests {
+
+    private static final String APP_PAGE = "src/test/java/com/example/pages/mobile/WikipediaAppPage.java";
+    private static final String THIS_FILE = "src/test/java/com/example/tests/utils/TestImpactAnalyzerTests.java";
+    private static final String MOBILE_TESTS = "com.example.tests.mobile.WikipediaMobileTests#";
+
+    private TestImpactAnalyzer analyzer;
+
+    @BeforeClass
+    public void loadClasses() throws IOException {
+        analyzer = new TestImpactAnalyzer();
+        analyzer.load(Paths.get(System.getProperty("impact.classes", "target/test-classes")));
+    }
+
+    @Test
+    public void testParseDiff() throws IOException {
+        final String diff = String.join("\n",
+                "diff --git a/src/A.java b/src/A.java",
+                "--- a/src/A.java",
+                "+++ b/src/A.java",
+                "@@ -10,2 +10,3 @@ class A {",
+                "@@ -40 +41 @@",
+                "@@ -50,3 +52,0 @@",
+                "diff --git a/src/Removed.java b/src/Removed.java",
+                "--- a/src/Removed.java",
+                "+++ /dev/null",
+                "@@ -1,5 +0,0 @@",
+                "diff --git a/src/New.java b/src/New.java",
+                "--- /dev/null",
+                "+++ b/src/New.java",
+                "@@ -0,0 +1,2 @@");
+
+        final Map<String, Set<Integer>> changed = TestImpactAnalyzer.parseDiff(new BufferedReader(new StringReader(diff)));
+
+        Assert.assertEquals(changed.keySet(), Set.of("src/A.java", "src/New.java"));
+        Assert.assertEquals(changed.get("src/A.java"), Set.of(10, 11, 12, 41, 52, 53),
+                "Удалённые строки отмечаются соседними строками нового файла");
+        Assert.assertEquals(changed.get("src/New.java"), Set.of(1, 2));
+    }
+
+    @Test
+    public void testMethodsAtBodyLine() throws IOException {
+        final int line = lineOf(APP_PAGE, "searchInput.sendKeys(query);");
+
+        final Set<String> methods = analyzer.methodsAt(APP_PAGE, Set.of(line));
+
+        Assert.assertTrue(methods.contains("com/example/pages/mobile/WikipediaAppPage#enterSearchQuery"), methods.toString());
+        Assert.assertFalse(methods.contains("com/example/pages/mobile/WikipediaAppPage#isSearchContainerDisplayed"),
+                methods.toString());
+    }
+
+    @Test
+    public void testMethodsAtReturnsEveryContainingMethod() throws IOException {
+        final int line = lineOf(THIS_FILE, "return \"между перегрузками\";");
+
+        final Set<String> methods = analyzer.methodsAt(THIS_FILE, Set.of(line));
+
+        final String owner = "com/example/tests/utils/TestImpactAnalyzerTests$Overloads#";
+        Assert.assertTrue(methods.contains(owner + "between"), methods.toString());
+        Assert.assertTrue(methods.contains(owner + "describe"),
+                "Перегрузки объединены по имени, и их диапазон накрывает строку: " + methods);
+    }
+
+    @Test
+    public void testSearchQueryChangeSelectsOnlySearchTests() throws IOException {
+        final int line = lineOf(APP_PAGE, "searchInput.sendKeys(query);");
+
+        final Set<String> affected = analyzer.affectedTests(Map.of(APP_PAGE, Set.of(line)));
+
+        Assert.assertNotNull(affected);
+        Assert.assertTrue(affected.contains(MOBILE_TESTS + "testSearchArticle"), affected.toString());
+        Assert.assertTrue(affected.contains(MOBILE_TESTS + "testOpenArticleAndCheckTitle"), affected.toString());
+        Assert.assertFalse(affected.contains(MOBILE_TESTS + "testMainScreenDisplay"), affected.toString());
+    }
+
+    @Test
+    public void testNonSourceChangesSelectEverythingOrNothing() throws IOException {
+        Assert.assertNull(analyzer.affectedTests(Map.of("pom.xml", Set.of(1))));
+        Assert.assertNull(analyzer.affectedTests(Map.of("src/test/resources/page-budgets.properties", Set.of(4))));
+        Assert.assertNull(analyzer.affectedTests(Map.of(
+                "src/test/java/com/example/listeners/FailureArtifactListener.java", Set.of(1))),
+                "Изменение слушателя TestNG затрагивает весь прогон");
+        Assert.assertEquals(analyzer.affectedTests(Map.of("README.md", Set.of(1))), Set.of());
+    }
+
+    private static int lineOf(final String file, final String text) throws IOException {
+        final List<String> lines = Files.readAllLines(Paths.get(file));
+        for (int i = 0; i < lines.size(); i++) {
+            if (lines.get(i).trim().equals(text)) {
+                return i + 1;
+            }
+        }
+        throw new IllegalStateException("В " + file + " нет строки " + text);
+    }
+
+    /**
+     * Перегрузки describe окружают метод between
+     */
+    static final class Overloads {
+        String describe(final int value) {
+            return "число " + value;
+        }
+
+        String between() {
+            return "между перегрузками";
+        }
+
+        String describe(final String value) {
+            return "строка " + value;
+        }
+    }
+}
@@ -1,35 +1,78 @@
 package com.example.tests.web;
 
+import com.example.pages.web.WikipediaWebOperations;
 import com.example.pages.web.WikipediaWebPage;
+import com.example.utils.PagePerformance;
 import com.example.utils.WebDriverManagerUtil;
+import com.example.utils.WikiStandInServer;
 import io.github.bonigarcia.wdm.WebDriverManager;
 import org.openqa.selenium.WebDriver;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
 import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeSuite;
 import org.testng.annotations.Test;
 
+import java.util.List;
+
 public class WikipediaWebTests {
 
-    private WebDriver driver;
-    private WikipediaWebPage wikipediaPage;
-    private static final String BASE_URL = "https://ru.wikipedia.org/";
+    private final ThreadLocal<WikipediaWebOperations> wikipediaPage = new ThreadLocal<>();
+
+    @BeforeSuite
+    public void startStandInServer() {
+        WikiStandInServer.startIfConfigured();
+    }
+
+    @BeforeSuite
+    public void warmUpBrowsers() {
+        if (!WikipediaWebOperations.isBrowserless()) {
+            WebDriverManagerUtil.warmUp();
+        }
+    }
 
     @BeforeMethod
     public void setUp() {
+        if (WikipediaWebOperations.isBrowserless()) {
+            wikipediaPage.set(WikipediaWebOperations.create());
+            return;
+        }
         WebDriver driver = WebDriverManagerUtil.getDriver();
-        driver.get(BASE_URL);
-        wikipediaPage = new WikipediaWebPage(driver);
+        driver.get(WikiStandInServer.getBaseUrl());
+        wikipediaPage.set(new WikipediaWebPage(driver));
     }
 
     @AfterMethod
     public void tearDown() {
-        WebDriverManagerUtil.quitDriver();
+        wikipediaPage.remove();
+        if (!WikipediaWebOperations.isBrowserless()) {
+            WebDriverManagerUtil.releaseDriver();
+        }
     }
 
-    @Test
+    @AfterSuite(alwaysRun = true)
+    public void shutDown() {
+        WebDriverManagerUtil.quitAllDrivers();
+        WikiStandInServer.stopIfRunning();
+    }
+
+    private WikipediaWebOperations page() {
+        return wikipediaPage.get();
+    }
+
+    /**
+     * Проверяет бюджеты метрик загруженных страниц; без perf.capture снимков нет и проверка ничего не делает
+     */
+    private void assertPageBudgets() {
+        final List<String> violations = PagePerformance.budgetViolations(page().getPerformanceSamples());
+        Assert.assertTrue(violations.isEmpty(), "Превышены бюджеты страниц: " + violations);
+    }
+
+    @Test(groups = "smoke")
     public void testMainPageLoaded() {
-        Assert.assertTrue(wikipediaPage.isMainPageContentAvailable());
+        Assert.assertTrue(page().isMainPageContentAvailable());
+        assertPageBudgets();
     }
 
     @Test
@@ -37,28 +80,29 @@ public class WikipediaWebTests {
         final String searchQuery = "Java";
         final String expectedArticleTitle = "Java";
 
-        wikipediaPage.searchFor(searchQuery);
+        page().searchFor(searchQuery);
 
-        final String heading = wikipediaPage.getArticleHeadingText();
+        final String heading = page().getArticleHeadingText();
 
         Assert.assertEquals(heading, expectedArticleTitle, "Expected heading: " + expectedArticleTitle + ", but got: " + heading);
+        assertPageBudgets();
     }
 
     @Test
     public void testRandomPageNavigation() {
-        wikipediaPage.isMainPageContentAvailable();
-        WebDriver driver = WebDriverManagerUtil.getDriver();
-        final String originalUrl = driver.getCurrentUrl();
+        page().isMainPageContentAvailable();
+        final String originalUrl = page().getCurrentUrl();
 
-        wikipediaPage.goToRandomPage();
+        page().goToRandomPage();
 
-        Assert.assertNotEquals(driver.getCurrentUrl(), originalUrl);
+        Assert.assertNotEquals(page().getCurrentUrl(), originalUrl);
+        assertPageBudgets();
     }
 
     @Test
     public void testSearchAvailable() {
-        wikipediaPage.isMainPageContentAvailable();
+        page().isMainPageContentAvailable();
 
-        Assert.assertTrue(wikipediaPage.isSearchInputDisplayedAndEnabled());
+        Assert.assertTrue(page().isSearchInputDisplayedAndEnabled());
     }
 }
@@ -2,53 +2,235 @@ package com.example.utils;
 
 import io.appium.java_client.android.AndroidDriver;
 import io.appium.java_client.android.options.UiAutomator2Options;
+import io.appium.java_client.appmanagement.ApplicationState;
+import org.openqa.selenium.WebDriverException;
 
-import java.net.MalformedURLException;
 import java.net.URI;
-import java.time.Duration;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Управляет сессиями Appium на устройствах из {@link DevicePool}.
+ * Поток получает устройство на время теста (getDriver -> releaseDriver); сессия остаётся привязанной к устройству,
+ * и следующий тест этого потока по возможности получает то же устройство с уже открытой сессией.
+ * В режиме переиспользования (appium.session.reuse, по умолчанию включён) между тестами приложение
+ * перезапускается через terminateApp/activateApp. Сессия пересоздаётся только если она перестала отвечать;
+ * если сессию не удалось создать, устройство уходит в карантин
+ */
 public class AppiumDriverManager {
-    private static AndroidDriver driver;
-    private static final String APPIUM_SERVER_URL = "http://localhost:4723";
+    private static final String DEFAULT_APP_PACKAGE = "org.wikipedia.alpha";
+    private static final boolean SESSION_REUSE = Boolean.parseBoolean(System.getProperty("appium.session.reuse", "true"));
 
+    private static final Map<DevicePool.Device, AndroidDriver> SESSIONS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<DevicePool.Device> LEASED_DEVICE = new ThreadLocal<>();
+    private static final ThreadLocal<DevicePool.Device> LAST_USED_DEVICE = new ThreadLocal<>();
+
+    /**
+     * Возвращает сессию устройства, выданного текущему потоку. При первом обращении в тесте
+     * берёт устройство из пула (предпочтительно то, что поток использовал ранее).
+     * Ожидание устройства и запуск сессии не засчитываются в бюджет теста
+     */
     public static AndroidDriver getDriver() {
+        final AndroidDriver driver = TestDeadline.excluding(AppiumDriverManager::acquireDriver);
+        LocatorProbe.applyImplicitWait(driver);
+        return driver;
+    }
+
+    private static AndroidDriver acquireDriver() {
+        DevicePool.Device device = LEASED_DEVICE.get();
+        if (device == null) {
+            device = DevicePool.getInstance().acquire(LAST_USED_DEVICE.get());
+            LEASED_DEVICE.set(device);
+        }
+        AndroidDriver driver = SESSIONS.get(device);
+        if (driver != null && !isSessionAlive(driver)) {
+            System.out.println("Сессия Appium на " + device + " не отвечает, создаём новую");
+            closeSession(device);
+            driver = null;
+        }
         if (driver == null) {
-            UiAutomator2Options options = new UiAutomator2Options();
-            options.setPlatformName("Android");
-            options.setDeviceName("emulator-5554");
-            options.setAutomationName("UiAutomator2");
-            options.setNoReset(true);
-            options.setFullReset(false);
-            options.setUdid(System.getProperty("deviceName", "emulator-5554"));
-
-            final String apkPath = System.getProperty("appPath");
-            if (apkPath != null && !apkPath.isEmpty()) {
-                options.setApp(apkPath);
-            } else {
-                String appPackage = System.getProperty("appPackage");
-                String appActivity = System.getProperty("appActivity");
-
-                if (appPackage == null || appPackage.isEmpty()) {
-                    appPackage = "org.wikipedia.alpha";
-                    appActivity = ".main.MainActivity";
-                }
-
-                options.setAppPackage(appPackage);
-                if (appActivity != null && !appActivity.isEmpty()) {
-                    options.setAppActivity(appActivity);
-                }
+            try {
+                driver = createSession(device);
+            } catch (RuntimeException e) {
+                LEASED_DEVICE.remove();
+                DevicePool.getInstance().quarantine(device, "не удалось создать сессию: " + e.getMessage());
+                throw e;
             }
-
-            driver = SneakyThrowUtil.sneakyGet(() -> new AndroidDriver(URI.create(APPIUM_SERVER_URL).toURL(), options));
-            driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(10));
+            SESSIONS.put(device, driver);
         }
         return driver;
     }
 
+    /**
+     * Устройство, выданное текущему потоку, или null
+     */
+    public static DevicePool.Device getDevice() {
+        return LEASED_DEVICE.get();
+    }
+
+    /**
+     * Сессия устройства, уже выданного текущему потоку, или null. Не берёт устройство из пула и не создаёт сессию
+     */
+    public static AndroidDriver getLeasedDriver() {
+        final DevicePool.Device device = LEASED_DEVICE.get();
+        return device == null ? null : SESSIONS.get(device);
+    }
+
+    private static AndroidDriver createSession(final DevicePool.Device device) {
+        UiAutomator2Options options = new UiAutomator2Options();
+        options.setPlatformName("Android");
+        options.setDeviceName(device.getUdid());
+        options.setAutomationName("UiAutomator2");
+        options.setNoReset(true);
+        options.setFullReset(false);
+        options.setUdid(device.getUdid());
+        if (device.getSystemPort() > 0) {
+            options.setSystemPort(device.getSystemPort());
+        }
+        if (device.getChromedriverPort() > 0) {
+            options.setChromedriverPort(device.getChromedriverPort());
+        }
+
+        final String apkPath = System.getProperty("appPath");
+        if (apkPath != null && !apkPath.isEmpty()) {
+            options.setApp(apkPath);
+        } else {
+            String appPackage = System.getProperty("appPackage");
+            String appActivity = System.getProperty("appActivity");
+
+            if (appPackage == null || appPackage.isEmpty()) {
+                appPackage = DEFAULT_APP_PACKAGE;
+                appActivity = ".main.MainActivity";
+            }
+
+            options.setAppPackage(appPackage);
+            if (appActivity != null && !appActivity.isEmpty()) {
+                options.setAppActivity(appActivity);
+            }
+        }
+
+        TestTimings.begin(TestTimings.Category.DRIVER_STARTUP);
+        try {
+            final AndroidDriver driver = ElementCachingDecorator.wrap(CommandMetrics.instrument(
+                    SneakyThrowUtil.sneakyGet(() -> new AndroidDriver(URI.create(device.getUrl()).toURL(), options))));
+            LocatorProbe.applyImplicitWait(driver);
+            return driver;
+        } finally {
+            TestTimings.end();
+        }
+    }
+
+    /**
+     * Завершает работу с устройством после теста и возвращает его в пул.
+     * В режиме переиспользования только сбрасывает состояние приложения, иначе закрывает сессию
+     */
+    public static void releaseDriver() {
+        final DevicePool.Device device = LEASED_DEVICE.get();
+        if (device == null) {
+            return;
+        }
+        LEASED_DEVICE.remove();
+        LAST_USED_DEVICE.set(device);
+        if (!SESSION_REUSE) {
+            closeSession(device);
+        } else if (SESSIONS.containsKey(device)) {
+            try {
+                resetApp(SESSIONS.get(device));
+            } catch (WebDriverException e) {
+                System.out.println("Не удалось сбросить приложение, сессия будет закрыта: " + e.getMessage());
+                closeSession(device);
+            }
+        }
+        DevicePool.getInstance().release(device);
+    }
+
+    /**
+     * Быстро сбрасывает состояние приложения на устройстве текущего потока:
+     * останавливает его и запускает заново на главном экране
+     */
+    public static void resetApp() {
+        final DevicePool.Device device = LEASED_DEVICE.get();
+        if (device != null && SESSIONS.containsKey(device)) {
+            resetApp(SESSIONS.get(device));
+        }
+    }
+
+    private static void resetApp(final AndroidDriver driver) {
+        final String appPackage = getAppPackage();
+        driver.terminateApp(appPackage);
+        driver.activateApp(appPackage);
+    }
+
+    /**
+     * Возвращает пакет тестируемого приложения
+     */
+    public static String getAppPackage() {
+        final String appPackage = System.getProperty("appPackage");
+        return appPackage == null || appPackage.isEmpty() ? DEFAULT_APP_PACKAGE : appPackage;
+    }
+
+    /**
+     * Возвращает версию тестируемого приложения для ключей кэшей.
+     * Берётся из свойства appVersion, иначе из имени APK, иначе "default"
+     */
+    public static String getAppVersion() {
+        final String appVersion = System.getProperty("appVersion");
+        if (appVersion != null && !appVersion.isEmpty()) {
+            return appVersion;
+        }
+        final String apkPath = System.getProperty("appPath");
+        if (apkPath != null && !apkPath.isEmpty()) {
+            return Paths.get(apkPath).getFileName().toString();
+        }
+        return "default";
+    }
+
+    /**
+     * Закрывает сессию текущего потока и возвращает устройство в пул
+     */
     public static void quitDriver() {
+        final DevicePool.Device device = LEASED_DEVICE.get();
+        if (device == null) {
+            return;
+        }
+        LEASED_DEVICE.remove();
+        closeSession(device);
+        DevicePool.getInstance().release(device);
+    }
+
+    /**
+     * Закрывает сессии на всех устройствах. Вызывается в конце прогона
+     */
+    public static void quitAllDrivers() {
+        for (DevicePool.Device device : new ArrayList<>(SESSIONS.keySet())) {
+            closeSession(device);
+        }
+        LEASED_DEVICE.remove();
+        LAST_USED_DEVICE.remove();
+    }
+
+    private static void closeSession(final DevicePool.Device device) {
+        final AndroidDriver driver = SESSIONS.remove(device);
         if (driver != null) {
-            driver.quit();
-            driver = null;
+            try {
+                driver.quit();
+            } catch (WebDriverException e) {
+                System.out.println("Не удалось корректно закрыть сессию Appium на " + device + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Проверяет, что сессия жива: сервер отвечает и знает о тестируемом приложении
+     */
+    private static boolean isSessionAlive(final AndroidDriver driver) {
+        try {
+            return driver.getSessionId() != null
+                    && driver.queryAppState(getAppPackage()) != ApplicationState.NOT_INSTALLED;
+        } catch (WebDriverException e) {
+            return false;
         }
     }
 }
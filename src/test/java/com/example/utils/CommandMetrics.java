@@ -0,0 +1,335 @@
+package com.example.utils;
+
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Метрики задержек команд WebDriver.
+ * Драйверы оборачиваются в {@link EventFiringDecorator} со слушателем, который пишет длительность каждой
+ * отслеживаемой команды в гистограмму по типу команды и по локатору. Включено свойством driver.metrics
+ * (по умолчанию), выгружается в конце прогона в формате Prometheus и JSON.
+ * Кроме того, для каждого потока хранятся последние driver.command.log.size команд - журнал для артефактов падения.
+ * Журнал не зависит от метрик: слушатель подключается, если включены метрики или журнал (driver.command.log.size &gt; 0),
+ * и журнал очищается в начале каждого теста ({@link #clearRecentCommands()})
+ */
+public class CommandMetrics implements WebDriverListener {
+
+    /**
+     * Команды, для которых собираются гистограммы
+     */
+    public static final Set<String> TRACKED_COMMANDS = Set.of(
+            "findElement", "findElements", "click", "getText", "executeScript", "get",
+            "sendKeys", "getAttribute", "isDisplayed", "getPageSource", "getCurrentUrl"
+    );
+
+    /**
+     * Границы корзин для выгрузки в Prometheus, в секундах
+     */
+    private static final double[] EXPORT_BUCKETS_SECONDS = {
+            0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30
+    };
+    private static final int MAX_CALL_DEPTH = 16;
+    private static final int COMMAND_LOG_SIZE = Integer.getInteger("driver.command.log.size", 50);
+    private static final int MAX_ARGUMENT_LENGTH = 120;
+    private static final DateTimeFormatter LOG_TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static final CommandMetrics INSTANCE = new CommandMetrics();
+
+    private final ConcurrentMap<String, LatencyHistogram> byCommand = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> byLocator = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> errors = new ConcurrentHashMap<>();
+    private final ThreadLocal<long[]> startTimes = ThreadLocal.withInitial(() -> new long[MAX_CALL_DEPTH + 1]);
+    private final ThreadLocal<Deque<CommandRecord>> recentCommands = ThreadLocal.withInitial(ArrayDeque::new);
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty("driver.metrics", "true"));
+    }
+
+    public static CommandMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Ведётся ли журнал последних команд
+     */
+    public static boolean isCommandLogEnabled() {
+        return COMMAND_LOG_SIZE > 0;
+    }
+
+    /**
+     * Оборачивает браузерный драйвер слушателем, если включены метрики или журнал команд
+     */
+    public static WebDriver instrument(final WebDriver driver) {
+        return isEnabled() || isCommandLogEnabled() ? new EventFiringDecorator<WebDriver>(INSTANCE).decorate(driver) : driver;
+    }
+
+    /**
+     * Оборачивает драйвер Appium с сохранением типа AndroidDriver, если включены метрики или журнал команд
+     */
+    public static AndroidDriver instrument(final AndroidDriver driver) {
+        return isEnabled() || isCommandLogEnabled()
+                ? new EventFiringDecorator<>(AndroidDriver.class, INSTANCE).decorate(driver)
+                : driver;
+    }
+
+    /**
+     * Начало команды. Время хранится в заранее выделенном массиве потока, элемент [0] - глубина вложенности.
+     * Заодно время команды засчитывается тесту в {@link TestTimings}
+     */
+    @Override
+    public void beforeAnyCall(final Object target, final Method method, final Object[] args) {
+        TestTimings.begin(TestTimings.Category.DRIVER_COMMAND);
+        final long[] stack = startTimes.get();
+        final int depth = (int) stack[0];
+        if (depth < MAX_CALL_DEPTH) {
+            stack[depth + 1] = System.nanoTime();
+        }
+        stack[0] = depth + 1;
+    }
+
+    @Override
+    public void afterAnyCall(final Object target, final Method method, final Object[] args, final Object result) {
+        finish(method, args, false);
+    }
+
+    @Override
+    public void onError(final Object target, final Method method, final Object[] args, final InvocationTargetException e) {
+        finish(method, args, true);
+    }
+
+    private void finish(final Method method, final Object[] args, final boolean failed) {
+        TestTimings.end();
+        final long[] stack = startTimes.get();
+        final int depth = (int) stack[0];
+        if (depth == 0) {
+            return;
+        }
+        stack[0] = depth - 1;
+        if (depth > MAX_CALL_DEPTH) {
+            return;
+        }
+        final String command = method.getName();
+        final long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - stack[depth]);
+        if (isCommandLogEnabled()) {
+            logCommand(command, args, micros, failed);
+        }
+        if (!isEnabled() || !TRACKED_COMMANDS.contains(command)) {
+            return;
+        }
+        byCommand.computeIfAbsent(command, name -> new LatencyHistogram()).record(micros);
+        final String locator = locatorOf(command, args);
+        if (locator != null) {
+            byLocator.computeIfAbsent(command, name -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(locator, name -> new LatencyHistogram())
+                    .record(micros);
+        }
+        if (failed) {
+            errors.computeIfAbsent(command, name -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    /**
+     * Добавляет команду в журнал потока; форматирование откладывается до {@link #getRecentCommands()}
+     */
+    private void logCommand(final String command, final Object[] args, final long micros, final boolean failed) {
+        final Deque<CommandRecord> log = recentCommands.get();
+        if (log.size() >= COMMAND_LOG_SIZE) {
+            log.pollFirst();
+        }
+        log.addLast(new CommandRecord(System.currentTimeMillis(), command, args, micros, failed));
+    }
+
+    /**
+     * Очищает журнал команд текущего потока - чтобы в артефакт падения не попали команды предыдущих тестов
+     */
+    public void clearRecentCommands() {
+        recentCommands.get().clear();
+    }
+
+    /**
+     * Последние команды драйвера текущего потока, от старых к новым
+     */
+    public List<String> getRecentCommands() {
+        final List<String> lines = new ArrayList<>();
+        for (CommandRecord record : recentCommands.get()) {
+            lines.add(record.format());
+        }
+        return lines;
+    }
+
+    /**
+     * Локатор поиска или имя mobile:-команды для executeScript; для остальных команд null
+     */
+    private static String locatorOf(final String command, final Object[] args) {
+        if (args == null || args.length == 0) {
+            return null;
+        }
+        if (args[0] instanceof By) {
+            return args[0].toString();
+        }
+        if ("executeScript".equals(command) && args[0] instanceof String && ((String) args[0]).startsWith("mobile:")) {
+            return (String) args[0];
+        }
+        return null;
+    }
+
+    /**
+     * Гистограмма команды или null, если команда не выполнялась
+     */
+    public LatencyHistogram getHistogram(final String command) {
+        return byCommand.get(command);
+    }
+
+    /**
+     * Сбрасывает накопленные метрики
+     */
+    public void reset() {
+        byCommand.clear();
+        byLocator.clear();
+        errors.clear();
+    }
+
+    /**
+     * Выгружает метрики в command-latency.prom (текстовый формат Prometheus) и command-latency.json
+     */
+    public void export(final Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Files.write(directory.resolve("command-latency.prom"), toPrometheusText().getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("command-latency.json"), new Json().toJson(toJsonModel()).getBytes(StandardCharsets.UTF_8));
+        System.out.println("Метрики команд WebDriver сохранены в " + directory.toAbsolutePath());
+    }
+
+    public String toPrometheusText() {
+        final StringBuilder text = new StringBuilder();
+        text.append("# HELP webdriver_command_duration_seconds Длительность команд WebDriver по типу команды\n")
+                .append("# TYPE webdriver_command_duration_seconds histogram\n");
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(byCommand).entrySet()) {
+            appendHistogram(text, "webdriver_command_duration_seconds",
+                    "command=\"" + escape(entry.getKey()) + "\"", entry.getValue());
+        }
+        text.append("# HELP webdriver_locator_duration_seconds Длительность команд WebDriver по локатору\n")
+                .append("# TYPE webdriver_locator_duration_seconds histogram\n");
+        for (Map.Entry<String, ConcurrentMap<String, LatencyHistogram>> command : new TreeMap<>(byLocator).entrySet()) {
+            for (Map.Entry<String, LatencyHistogram> locator : new TreeMap<>(command.getValue()).entrySet()) {
+                appendHistogram(text, "webdriver_locator_duration_seconds",
+                        "command=\"" + escape(command.getKey()) + "\",locator=\"" + escape(locator.getKey()) + "\"",
+                        locator.getValue());
+            }
+        }
+        text.append("# HELP webdriver_command_errors_total Команды WebDriver, завершившиеся ошибкой\n")
+                .append("# TYPE webdriver_command_errors_total counter\n");
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<>(errors).entrySet()) {
+            text.append("webdriver_command_errors_total{command=\"").append(escape(entry.getKey())).append("\"} ")
+                    .append(entry.getValue().get()).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void appendHistogram(final StringBuilder text, final String name, final String labels,
+                                        final LatencyHistogram histogram) {
+        for (double bound : EXPORT_BUCKETS_SECONDS) {
+            text.append(name).append("_bucket{").append(labels).append(",le=\"").append(bound).append("\"} ")
+                    .append(histogram.countAtOrBelow((long) (bound * 1_000_000))).append('\n');
+        }
+        text.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(histogram.getCount()).append('\n')
+                .append(name).append("_sum{").append(labels).append("} ")
+                .append(String.format(Locale.ROOT, "%.6f", histogram.getSumMicros() / 1_000_000.0)).append('\n')
+                .append(name).append("_count{").append(labels).append("} ").append(histogram.getCount()).append('\n');
+    }
+
+    private Map<String, Object> toJsonModel() {
+        final List<Map<String, Object>> commands = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(byCommand).entrySet()) {
+            final Map<String, Object> command = new LinkedHashMap<>();
+            command.put("command", entry.getKey());
+            command.putAll(summary(entry.getValue()));
+            final AtomicLong errorCount = errors.get(entry.getKey());
+            command.put("errors", errorCount == null ? 0 : errorCount.get());
+            final List<Map<String, Object>> locators = new ArrayList<>();
+            for (Map.Entry<String, LatencyHistogram> locator
+                    : new TreeMap<>(byLocator.getOrDefault(entry.getKey(), new ConcurrentHashMap<>())).entrySet()) {
+                final Map<String, Object> locatorSummary = new LinkedHashMap<>();
+                locatorSummary.put("locator", locator.getKey());
+                locatorSummary.putAll(summary(locator.getValue()));
+                locators.add(locatorSummary);
+            }
+            locators.sort((a, b) -> Long.compare((long) b.get("totalMicros"), (long) a.get("totalMicros")));
+            command.put("locators", locators);
+            commands.add(command);
+        }
+        return Map.of("commands", commands);
+    }
+
+    private static Map<String, Object> summary(final LatencyHistogram histogram) {
+        final Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", histogram.getCount());
+        summary.put("totalMicros", histogram.getSumMicros());
+        summary.put("meanMicros", Math.round(histogram.getMeanMicros()));
+        summary.put("p50Micros", histogram.percentile(0.5));
+        summary.put("p90Micros", histogram.percentile(0.9));
+        summary.put("p99Micros", histogram.percentile(0.99));
+        summary.put("maxMicros", histogram.getMaxMicros());
+        return summary;
+    }
+
+    /**
+     * Команда в журнале потока. Аргументы хранятся как есть и превращаются в строку только при выгрузке журнала
+     */
+    private static final class CommandRecord {
+        private final long timestamp;
+        private final String command;
+        private final Object[] args;
+        private final long micros;
+        private final boolean failed;
+
+        private CommandRecord(final long timestamp, final String command, final Object[] args, final long micros,
+                              final boolean failed) {
+            this.timestamp = timestamp;
+            this.command = command;
+            this.args = args;
+            this.micros = micros;
+            this.failed = failed;
+        }
+
+        private String format() {
+            String arguments = args == null ? "" : Arrays.deepToString(args);
+            if (arguments.length() > MAX_ARGUMENT_LENGTH) {
+                arguments = arguments.substring(0, MAX_ARGUMENT_LENGTH) + "...";
+            }
+            return LOG_TIME.format(Instant.ofEpochMilli(timestamp)) + " " + command + arguments + " "
+                    + String.format(Locale.ROOT, "%.1f", micros / 1000.0) + " мс" + (failed ? " ОШИБКА" : "");
+        }
+    }
+
+    private static String escape(final String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
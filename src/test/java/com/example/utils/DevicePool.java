@@ -0,0 +1,240 @@
+package com.example.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пул Android-устройств для параллельного запуска мобильных тестов.
+ * Устройства описываются в файле appium.devices (properties):
+ * <pre>
+ * devices=emulator-5554,emulator-5556
+ * emulator-5554.url=http://localhost:4723
+ * emulator-5554.systemPort=8200
+ * emulator-5554.chromedriverPort=9515
+ * </pre>
+ * Если файла нет, пул состоит из одного устройства deviceName на http://localhost:4723.
+ * Устройство выдаётся потоку на время теста; устройство, не прошедшее проверку GET {url}/status,
+ * помещается в карантин и больше не выдаётся
+ */
+public class DevicePool {
+
+    private static final String DEFAULT_DEVICES_FILE = "src/test/resources/devices.properties";
+    private static final String DEFAULT_APPIUM_URL = "http://localhost:4723";
+    private static final String DEFAULT_DEVICE = "emulator-5554";
+    private static final long HEALTH_CHECK_INTERVAL_MILLIS = Long.getLong("appium.health.interval.ms", 30_000L);
+
+    private static volatile DevicePool instance;
+
+    private final List<Device> devices;
+    private final BlockingDeque<Device> idleDevices = new LinkedBlockingDeque<>();
+    private final Set<Device> quarantined = ConcurrentHashMap.newKeySet();
+    private final Map<Device, Long> lastHealthyAt = new ConcurrentHashMap<>();
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    public DevicePool(final List<Device> devices) {
+        if (devices.isEmpty()) {
+            throw new IllegalArgumentException("Пул устройств пуст");
+        }
+        this.devices = Collections.unmodifiableList(new ArrayList<>(devices));
+        this.idleDevices.addAll(devices);
+    }
+
+    /**
+     * Пул, описанный файлом appium.devices (по умолчанию src/test/resources/devices.properties)
+     */
+    public static DevicePool getInstance() {
+        DevicePool pool = instance;
+        if (pool == null) {
+            synchronized (DevicePool.class) {
+                pool = instance;
+                if (pool == null) {
+                    pool = SneakyThrowUtil.sneakyGet(() -> load(Paths.get(System.getProperty("appium.devices", DEFAULT_DEVICES_FILE))));
+                    instance = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Число устройств в пуле - для расчёта числа потоков мобильных тестов
+     */
+    public static int configuredSize() {
+        return getInstance().devices.size();
+    }
+
+    static DevicePool load(final Path file) throws IOException {
+        if (!Files.exists(file)) {
+            final String udid = System.getProperty("deviceName", DEFAULT_DEVICE);
+            return new DevicePool(List.of(new Device(udid, DEFAULT_APPIUM_URL, 0, 0)));
+        }
+        final Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        return fromProperties(properties);
+    }
+
+    public static DevicePool fromProperties(final Properties properties) {
+        final List<Device> devices = new ArrayList<>();
+        for (String udid : properties.getProperty("devices", "").split(",")) {
+            final String id = udid.trim();
+            if (id.isEmpty()) {
+                continue;
+            }
+            devices.add(new Device(id,
+                    properties.getProperty(id + ".url", DEFAULT_APPIUM_URL),
+                    Integer.parseInt(properties.getProperty(id + ".systemPort", "0").trim()),
+                    Integer.parseInt(properties.getProperty(id + ".chromedriverPort", "0").trim())));
+        }
+        return new DevicePool(devices);
+    }
+
+    /**
+     * Выдаёт исправное устройство, ожидая освобождения, если все заняты
+     *
+     * @param preferred устройство, которое поток использовал ранее (на нём уже может быть открыта сессия), или null
+     * @throws IllegalStateException если все устройства в карантине
+     */
+    public Device acquire(final Device preferred) {
+        if (preferred != null && idleDevices.remove(preferred)) {
+            if (checkHealth(preferred)) {
+                return preferred;
+            }
+        }
+        while (true) {
+            if (quarantined.size() >= devices.size()) {
+                throw new IllegalStateException("Нет исправных устройств, в карантине: " + quarantined);
+            }
+            final Device device = SneakyThrowUtil.sneakyGet(() -> idleDevices.pollFirst(1, TimeUnit.SECONDS));
+            if (device != null && checkHealth(device)) {
+                return device;
+            }
+        }
+    }
+
+    /**
+     * Возвращает устройство в пул
+     */
+    public void release(final Device device) {
+        if (device != null && !quarantined.contains(device) && !idleDevices.contains(device)) {
+            idleDevices.offerFirst(device);
+        }
+    }
+
+    /**
+     * Исключает устройство из выдачи до конца прогона
+     */
+    public void quarantine(final Device device, final String reason) {
+        if (quarantined.add(device)) {
+            idleDevices.remove(device);
+            System.out.println("Устройство " + device + " помещено в карантин: " + reason);
+        }
+    }
+
+    public boolean isQuarantined(final Device device) {
+        return quarantined.contains(device);
+    }
+
+    public List<Device> getDevices() {
+        return devices;
+    }
+
+    /**
+     * Проверяет Appium-сервер устройства запросом GET {url}/status, не чаще раза в appium.health.interval.ms.
+     * Неисправное устройство сразу помещается в карантин
+     */
+    private boolean checkHealth(final Device device) {
+        final Long checkedAt = lastHealthyAt.get(device);
+        if (checkedAt != null && System.currentTimeMillis() - checkedAt < HEALTH_CHECK_INTERVAL_MILLIS) {
+            return true;
+        }
+        String failure;
+        try {
+            final HttpRequest request = HttpRequest.newBuilder(URI.create(device.getUrl().replaceAll("/+$", "") + "/status"))
+                    .timeout(Duration.ofSeconds(5))
+                    .GET()
+                    .build();
+            final int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status == 200) {
+                lastHealthyAt.put(device, System.currentTimeMillis());
+                return true;
+            }
+            failure = "статус " + status;
+        } catch (IOException e) {
+            failure = e.toString();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        quarantine(device, "проверка " + device.getUrl() + "/status не прошла: " + failure);
+        return false;
+    }
+
+    /**
+     * Устройство и его Appium-сервер. Порты 0 - значение по умолчанию UiAutomator2
+     */
+    public static final class Device {
+        private final String udid;
+        private final String url;
+        private final int systemPort;
+        private final int chromedriverPort;
+
+        public Device(final String udid, final String url, final int systemPort, final int chromedriverPort) {
+            this.udid = udid;
+            this.url = url;
+            this.systemPort = systemPort;
+            this.chromedriverPort = chromedriverPort;
+        }
+
+        public String getUdid() {
+            return udid;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public int getSystemPort() {
+            return systemPort;
+        }
+
+        public int getChromedriverPort() {
+            return chromedriverPort;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof Device && udid.equals(((Device) other).udid) && url.equals(((Device) other).url);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(udid, url);
+        }
+
+        @Override
+        public String toString() {
+            return udid + "@" + url;
+        }
+    }
+}
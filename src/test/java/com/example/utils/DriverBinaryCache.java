@@ -0,0 +1,196 @@
+package com.example.utils;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Кэш соответствия "версия браузера -> бинарник драйвера".
+ * WebDriverManager при каждом setup() определяет версию браузера и подбирает драйвер, что может требовать сети.
+ * Кэш хранит в файле (driver.cache.file, по умолчанию .cache/driver-binaries.properties) путь к драйверу и его SHA-256
+ * для каждой версии браузера. При совпадении версии браузера и хэша драйвера WebDriverManager не вызывается вовсе,
+ * поэтому запуск работает без сети. В пределах одного JVM драйвер определяется один раз
+ */
+public class DriverBinaryCache {
+
+    private static final Path CACHE_FILE = Paths.get(System.getProperty("driver.cache.file", ".cache/driver-binaries.properties"));
+    private static final Pattern VERSION = Pattern.compile("(\\d+(\\.\\d+)+)");
+    private static final Map<String, String> RESOLVED = new ConcurrentHashMap<>();
+
+    /**
+     * Настраивает путь к драйверу для браузера chrome или firefox
+     */
+    public static void setup(final String browser) {
+        RESOLVED.computeIfAbsent(browser, DriverBinaryCache::resolve);
+    }
+
+    private static String resolve(final String browser) {
+        final String systemProperty = driverSystemProperty(browser);
+        final String browserVersion = detectBrowserVersion(browser);
+        final String cacheKey = browser + "|" + browserVersion;
+        if (browserVersion != null) {
+            final String cached = lookup(cacheKey);
+            if (cached != null) {
+                System.setProperty(systemProperty, cached);
+                System.out.println("Драйвер " + browser + " " + browserVersion + " взят из кэша: " + cached);
+                return cached;
+            }
+        }
+
+        final WebDriverManager manager = "firefox".equals(browser) ? WebDriverManager.firefoxdriver() : WebDriverManager.chromedriver();
+        manager.setup();
+        final String driverPath = manager.getDownloadedDriverPath();
+        if (browserVersion != null && driverPath != null) {
+            store(cacheKey, driverPath);
+        }
+        return driverPath == null ? "" : driverPath;
+    }
+
+    private static String driverSystemProperty(final String browser) {
+        return "firefox".equals(browser) ? "webdriver.gecko.driver" : "webdriver.chrome.driver";
+    }
+
+    /**
+     * Путь к драйверу из кэша, если файл драйвера на месте и его хэш не изменился.
+     * Повреждённая запись считается промахом кэша
+     */
+    private static synchronized String lookup(final String cacheKey) {
+        final String entry = load().getProperty(cacheKey);
+        if (entry == null) {
+            return null;
+        }
+        final int separator = entry.lastIndexOf('|');
+        if (separator < 1) {
+            return null;
+        }
+        final Path driverPath;
+        try {
+            driverPath = Paths.get(entry.substring(0, separator));
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        if (!Files.isRegularFile(driverPath)) {
+            return null;
+        }
+        return entry.substring(separator + 1).equals(sha256(driverPath)) ? driverPath.toString() : null;
+    }
+
+    private static synchronized void store(final String cacheKey, final String driverPath) {
+        final Properties cache = load();
+        cache.setProperty(cacheKey, driverPath + "|" + sha256(Paths.get(driverPath)));
+        SneakyThrowUtil.sneakyRun(() -> {
+            if (CACHE_FILE.getParent() != null) {
+                Files.createDirectories(CACHE_FILE.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(CACHE_FILE)) {
+                cache.store(out, "Browser version -> driver binary and its SHA-256");
+            }
+        });
+    }
+
+    private static Properties load() {
+        final Properties cache = new Properties();
+        if (Files.exists(CACHE_FILE)) {
+            try (InputStream in = Files.newInputStream(CACHE_FILE)) {
+                cache.load(in);
+            } catch (IOException e) {
+                System.out.println("Не удалось прочитать кэш драйверов: " + e.getMessage());
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Версия браузера из вывода "&lt;браузер&gt; --version" или null, если её не удалось определить
+     */
+    private static String detectBrowserVersion(final String browser) {
+        final String configuredBinary = System.getProperty(browser + ".binary");
+        final List<String> candidates;
+        if (configuredBinary != null && !configuredBinary.isEmpty()) {
+            candidates = List.of(configuredBinary);
+        } else if ("firefox".equals(browser)) {
+            candidates = List.of("firefox");
+        } else {
+            candidates = List.of("google-chrome", "google-chrome-stable", "chromium", "chromium-browser",
+                    "/Applications/Google Chrome.app/Contents/MacOS/Google Chrome");
+        }
+        for (String binary : candidates) {
+            final String version = runVersionCommand(binary);
+            if (version != null) {
+                return version;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Вывод процесса пишется во временный файл и читается только после его завершения:
+     * обёртка, которая не завершается или не закрывает stdout, не блокирует запуск дольше 10 секунд
+     */
+    private static String runVersionCommand(final String binary) {
+        Path output = null;
+        try {
+            output = Files.createTempFile("browser-version", ".txt");
+            final Process process = new ProcessBuilder(binary, "--version")
+                    .redirectErrorStream(true)
+                    .redirectOutput(output.toFile())
+                    .start();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return null;
+            }
+            if (process.exitValue() != 0) {
+                return null;
+            }
+            final Matcher matcher = VERSION.matcher(new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+            return matcher.find() ? matcher.group(1) : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            if (output != null) {
+                try {
+                    Files.deleteIfExists(output);
+                } catch (IOException e) {
+                    output.toFile().deleteOnExit();
+                }
+            }
+        }
+    }
+
+    private static String sha256(final Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            final StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            return "";
+        }
+    }
+}
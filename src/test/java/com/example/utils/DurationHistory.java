@@ -0,0 +1,132 @@
+package com.example.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * История длительностей тестов - основа для планирования прогона.
+ * Файл duration.history.file (по умолчанию .cache/test-durations.tsv) только дописывается: строка
+ * "время&lt;TAB&gt;тест&lt;TAB&gt;мс&lt;TAB&gt;статус" на каждый выполненный тест.
+ * Оценка длительности теста - медиана последних успешных запусков (если их нет - любых)
+ */
+public class DurationHistory {
+
+    private static final int SAMPLES = 5;
+
+    private final Path file;
+    private final Map<String, Deque<Long>> successful = new HashMap<>();
+    private final Map<String, Deque<Long>> any = new HashMap<>();
+
+    private DurationHistory(final Path file) {
+        this.file = file;
+    }
+
+    /**
+     * История из файла duration.history.file; если файла нет - пустая
+     */
+    public static DurationHistory load() {
+        return load(Paths.get(System.getProperty("duration.history.file", ".cache/test-durations.tsv")));
+    }
+
+    public static DurationHistory load(final Path file) {
+        final DurationHistory history = new DurationHistory(file);
+        if (!Files.exists(file)) {
+            return history;
+        }
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                final String[] fields = line.split("\t");
+                if (fields.length < 4) {
+                    continue;
+                }
+                try {
+                    history.add(fields[1], Long.parseLong(fields[2]), "SUCCESS".equals(fields[3]));
+                } catch (NumberFormatException e) {
+                    // повреждённая строка истории не мешает остальным
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Не удалось прочитать историю длительностей тестов: " + e.getMessage());
+        }
+        return history;
+    }
+
+    private void add(final String test, final long millis, final boolean success) {
+        remember(any, test, millis);
+        if (success) {
+            remember(successful, test, millis);
+        }
+    }
+
+    private static void remember(final Map<String, Deque<Long>> samples, final String test, final long millis) {
+        final Deque<Long> recent = samples.computeIfAbsent(test, name -> new ArrayDeque<>());
+        if (recent.size() >= SAMPLES) {
+            recent.pollFirst();
+        }
+        recent.addLast(millis);
+    }
+
+    /**
+     * Оценка длительности теста в мс или null, если тест ещё не запускался
+     */
+    public synchronized Long estimate(final String test) {
+        final Deque<Long> recent = successful.containsKey(test) ? successful.get(test) : any.get(test);
+        if (recent == null || recent.isEmpty()) {
+            return null;
+        }
+        final List<Long> sorted = new ArrayList<>(recent);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    /**
+     * Дописывает результаты прогона в конец файла истории
+     *
+     * @param samples строки: тест, длительность в мс, успешен ли тест
+     */
+    public synchronized void append(final List<Sample> samples) {
+        if (samples.isEmpty()) {
+            return;
+        }
+        final StringBuilder lines = new StringBuilder();
+        final long now = System.currentTimeMillis();
+        for (Sample sample : samples) {
+            lines.append(now).append('\t').append(sample.test).append('\t').append(sample.millis).append('\t')
+                    .append(sample.success ? "SUCCESS" : "FAILURE").append('\n');
+            add(sample.test, sample.millis, sample.success);
+        }
+        SneakyThrowUtil.sneakyRun(() -> {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.write(file, lines.toString().getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        });
+    }
+
+    /**
+     * Длительность одного выполнения теста
+     */
+    public static final class Sample {
+        private final String test;
+        private final long millis;
+        private final boolean success;
+
+        public Sample(final String test, final long millis, final boolean success) {
+            this.test = test;
+            this.millis = millis;
+            this.success = success;
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.utils;
+
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.support.decorators.Decorated;
+import org.openqa.selenium.support.decorators.WebDriverDecorator;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш поиска элементов.
+ * В пределах "эпохи" - пока не выполнена изменяющая команда (click, sendKeys, get, back и т.п.) - повторный
+ * findElement с тем же локатором возвращает уже найденный элемент без обращения к удалённому драйверу.
+ * Любая команда, не известная как читающая, начинает новую эпоху.
+ * Эпоха хранится в потоке: ожидания ({@link TimedWebDriverWait}, {@link RunWithWaitUtil}) начинают новую эпоху
+ * перед каждым повторным опросом, так что ожидание всегда видит свежее состояние экрана.
+ * Элемент из findElement оборачивается собственным прокси ({@link CachedElement}): команды элемента идут через него,
+ * изменяющие команды начинают новую эпоху, а устаревший элемент (StaleElementReferenceException) один раз прозрачно
+ * ищется заново тем же локатором. Элементы из findElements не кэшируются и заново не ищутся: после обновления списка
+ * элемент с тем же индексом может оказаться другим.
+ * Включается свойством driver.element.cache (по умолчанию выключен), запись в кэше живёт не дольше
+ * driver.element.cache.ttl.ms
+ */
+public class ElementCachingDecorator<T extends WebDriver> extends WebDriverDecorator<T> {
+
+    /**
+     * Команды, которые не меняют состояние экрана и не начинают новую эпоху. Сюда входят установка таймаутов:
+     * {@link LocatorProbe} переключает неявное ожидание вокруг каждой проверки, и это не должно сбрасывать кэш
+     */
+    private static final Set<String> READ_ONLY_COMMANDS = Set.of(
+            "findElements", "getText", "getRect", "getLocation", "getSize", "isDisplayed", "isEnabled", "isSelected",
+            "getAttribute", "getDomAttribute", "getDomProperty", "getTagName", "getCssValue", "getAccessibleName",
+            "getAriaRole", "getCurrentUrl", "getTitle", "getPageSource", "getWindowHandle", "getWindowHandles",
+            "getScreenshotAs", "getSessionId", "getCapabilities", "getWrappedDriver", "getWrappedElement", "getId",
+            "getShadowRoot", "manage", "timeouts", "logs", "toString", "hashCode", "equals", "getOrientation",
+            "getContext", "getContextHandles", "currentActivity", "getCurrentPackage", "isKeyboardShown", "getStatus",
+            "switchTo", "navigate", "implicitlyWait", "scriptTimeout", "setScriptTimeout", "pageLoadTimeout",
+            "getImplicitWaitTimeout", "getScriptTimeout", "getPageLoadTimeout", "queryAppState"
+    );
+
+    private static final long TTL_MILLIS = Long.getLong("driver.element.cache.ttl.ms", 1000L);
+    private static final ThreadLocal<Epoch> EPOCH = ThreadLocal.withInitial(Epoch::new);
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong RERESOLVED = new AtomicLong();
+
+    public ElementCachingDecorator() {
+        super();
+    }
+
+    public ElementCachingDecorator(final Class<T> targetClass) {
+        super(targetClass);
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("driver.element.cache");
+    }
+
+    /**
+     * Оборачивает браузерный драйвер кэшем, если он включён
+     */
+    public static WebDriver wrap(final WebDriver driver) {
+        return isEnabled() ? new ElementCachingDecorator<>().decorate(driver) : driver;
+    }
+
+    /**
+     * Оборачивает драйвер Appium кэшем с сохранением типа AndroidDriver, если кэш включён
+     */
+    public static AndroidDriver wrap(final AndroidDriver driver) {
+        return isEnabled() ? new ElementCachingDecorator<>(AndroidDriver.class).decorate(driver) : driver;
+    }
+
+    /**
+     * Начинает новую эпоху в текущем потоке: всё закэшированное считается устаревшим
+     */
+    public static void newEpoch() {
+        EPOCH.get().advance();
+    }
+
+    /**
+     * Попадания в кэш, промахи и повторные поиски устаревших элементов за прогон
+     */
+    public static String statistics() {
+        return "попаданий " + HITS.get() + ", промахов " + MISSES.get() + ", повторных поисков " + RERESOLVED.get();
+    }
+
+    @Override
+    public Object call(final Decorated<?> target, final Method method, final Object[] args) throws Throwable {
+        final String command = method.getName();
+        final Object[] unwrapped = unwrap(args);
+        if ("findElement".equals(command)) {
+            return findElement((SearchContext) target.getOriginal(), method, unwrapped);
+        }
+        if (READ_ONLY_COMMANDS.contains(command)) {
+            return super.call(target, method, unwrapped);
+        }
+        final Epoch epoch = EPOCH.get();
+        epoch.advance();
+        try {
+            return super.call(target, method, unwrapped);
+        } finally {
+            epoch.advance();
+        }
+    }
+
+    private static WebElement findElement(final SearchContext context, final Method method, final Object[] args)
+            throws Throwable {
+        final By by = (By) args[0];
+        final Epoch epoch = EPOCH.get();
+        final CacheKey key = new CacheKey(context, by);
+        final WebElement cached = epoch.get(key);
+        if (cached != null) {
+            HITS.incrementAndGet();
+            return cached;
+        }
+        MISSES.incrementAndGet();
+        final WebElement element = CachedElement.wrap(context, by, (WebElement) method.invoke(context, args));
+        epoch.put(key, element);
+        return element;
+    }
+
+    /**
+     * Аргументы команды с собственными прокси элементов, заменёнными на текущие элементы драйвера, -
+     * чтобы сериализация аргументов (executeScript и т.п.) не зависела от этого кэша
+     */
+    private static Object[] unwrap(final Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        Object[] result = args;
+        for (int i = 0; i < args.length; i++) {
+            final Object unwrapped = unwrap(args[i]);
+            if (unwrapped != args[i]) {
+                if (result == args) {
+                    result = args.clone();
+                }
+                result[i] = unwrapped;
+            }
+        }
+        return result;
+    }
+
+    private static Object unwrap(final Object arg) {
+        if (arg != null && Proxy.isProxyClass(arg.getClass()) && Proxy.getInvocationHandler(arg) instanceof CachedElement) {
+            return ((CachedElement) Proxy.getInvocationHandler(arg)).element;
+        }
+        if (arg instanceof List) {
+            final List<Object> list = new ArrayList<>();
+            for (Object item : (List<?>) arg) {
+                list.add(unwrap(item));
+            }
+            return list;
+        }
+        if (arg instanceof Object[]) {
+            return unwrap((Object[]) arg);
+        }
+        return arg;
+    }
+
+    /**
+     * Собственный прокси элемента из findElement: хранит локатор, по которому элемент найден, и при устаревании
+     * один раз подменяет элемент найденным заново. Изменяющие команды элемента начинают новую эпоху
+     */
+    private static final class CachedElement implements InvocationHandler {
+        private final SearchContext context;
+        private final By by;
+        private volatile WebElement element;
+
+        private CachedElement(final SearchContext context, final By by, final WebElement element) {
+            this.context = context;
+            this.by = by;
+            this.element = element;
+        }
+
+        private static WebElement wrap(final SearchContext context, final By by, final WebElement element) {
+            if (element == null) {
+                return null;
+            }
+            final Set<Class<?>> interfaces = new LinkedHashSet<>();
+            for (Class<?> type = element.getClass(); type != null; type = type.getSuperclass()) {
+                for (Class<?> implemented : type.getInterfaces()) {
+                    if (Modifier.isPublic(implemented.getModifiers())) {
+                        interfaces.add(implemented);
+                    }
+                }
+            }
+            interfaces.add(WebElement.class);
+            interfaces.add(WrapsElement.class);
+            return (WebElement) Proxy.newProxyInstance(ElementCachingDecorator.class.getClassLoader(),
+                    interfaces.toArray(new Class<?>[0]), new CachedElement(context, by, element));
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            final String command = method.getName();
+            if (method.getDeclaringClass() == Object.class) {
+                switch (command) {
+                    case "equals":
+                        return proxy == args[0] || element.equals(unwrap(args[0]));
+                    case "hashCode":
+                        return element.hashCode();
+                    default:
+                        return "Cached " + element;
+                }
+            }
+            if ("getWrappedElement".equals(command) && (args == null || args.length == 0)) {
+                return element;
+            }
+            final boolean readOnly = READ_ONLY_COMMANDS.contains(command) || "findElement".equals(command);
+            final Epoch epoch = EPOCH.get();
+            if (!readOnly) {
+                epoch.advance();
+            }
+            try {
+                final Object result = invokeFresh(method, unwrap(args));
+                return "findElement".equals(command) ? wrap((SearchContext) proxy, (By) args[0], (WebElement) result) : result;
+            } finally {
+                if (!readOnly) {
+                    epoch.advance();
+                }
+            }
+        }
+
+        private Object invokeFresh(final Method method, final Object[] args) throws Throwable {
+            try {
+                return method.invoke(element, args);
+            } catch (InvocationTargetException e) {
+                if (!(e.getTargetException() instanceof StaleElementReferenceException) || !reresolve()) {
+                    throw e.getTargetException();
+                }
+            }
+            RERESOLVED.incrementAndGet();
+            try {
+                return method.invoke(element, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+
+        private boolean reresolve() {
+            EPOCH.get().advance();
+            try {
+                element = context.findElement(by);
+                return true;
+            } catch (NoSuchElementException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Кэш потока. Записи сбрасываются изменяющей командой, новым опросом ожидания или по возрасту
+     */
+    private static final class Epoch {
+        private final Map<CacheKey, WebElement> values = new HashMap<>();
+        private long startedAt = System.currentTimeMillis();
+
+        private WebElement get(final CacheKey key) {
+            if (System.currentTimeMillis() - startedAt > TTL_MILLIS) {
+                advance();
+                return null;
+            }
+            return values.get(key);
+        }
+
+        private void put(final CacheKey key, final WebElement value) {
+            values.put(key, value);
+        }
+
+        private void advance() {
+            values.clear();
+            startedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Ключ кэша: контекст поиска (по ссылке) и локатор
+     */
+    private static final class CacheKey {
+        private final Object context;
+        private final By by;
+
+        private CacheKey(final Object context, final By by) {
+            this.context = context;
+            this.by = by;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof CacheKey)) {
+                return false;
+            }
+            final CacheKey key = (CacheKey) other;
+            return context == key.context && Objects.equals(by, key.by);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(context), by);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.utils;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Фоновая запись артефактов падений.
+ * Тестовый поток только кладёт снятые данные в ограниченную очередь; если очередь заполнена, артефакт отбрасывается,
+ * а не задерживает тест. Фоновый поток сжимает page source и журнал команд (gzip) и пишет их вместе со скриншотом
+ * в каталог blobs под именем SHA-256 содержимого, поэтому одинаковый экран или разметка сохраняются один раз.
+ * Для каждого падения пишется failure.json со ссылками на файлы
+ */
+public class FailureArtifactWriter {
+
+    private static final String BLOBS_DIR = "blobs";
+    private static final DateTimeFormatter FOLDER_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final Path directory;
+    private final BlockingQueue<FailureArtifact> queue;
+    private final Set<String> writtenHashes = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final AtomicInteger deduplicated = new AtomicInteger();
+    private final Thread worker;
+    private volatile boolean closed;
+
+    public FailureArtifactWriter(final Path directory, final int capacity) {
+        this.directory = directory;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.worker = new Thread(this::drain, "failure-artifact-writer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Ставит артефакт в очередь без ожидания
+     *
+     * @return false, если очередь заполнена и артефакт отброшен
+     */
+    public boolean submit(final FailureArtifact artifact) {
+        if (closed || !queue.offer(artifact)) {
+            dropped.incrementAndGet();
+            System.out.println("Очередь артефактов заполнена, артефакт " + artifact.getTestName() + " отброшен");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Дописывает оставшиеся в очереди артефакты и останавливает фоновый поток
+     */
+    public void close(final long timeoutMillis) {
+        closed = true;
+        SneakyThrowUtil.sneakyRun(() -> worker.join(timeoutMillis));
+        System.out.println("Артефакты падений: записано " + written.get() + ", повторов пропущено " + deduplicated.get()
+                + ", отброшено " + dropped.get() + " (" + directory.toAbsolutePath() + ")");
+    }
+
+    private void drain() {
+        while (true) {
+            final FailureArtifact artifact;
+            try {
+                artifact = closed ? queue.poll() : queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (artifact == null) {
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                write(artifact);
+                written.incrementAndGet();
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Не удалось записать артефакты " + artifact.getTestName() + ": " + e);
+            }
+        }
+    }
+
+    private void write(final FailureArtifact artifact) throws IOException {
+        final Path blobs = Files.createDirectories(directory.resolve(BLOBS_DIR));
+        final Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("test", artifact.getTestName());
+        manifest.put("time", artifact.getTime().toString());
+        manifest.put("error", artifact.getError());
+        if (artifact.getScreenshot() != null) {
+            // PNG уже сжат, поэтому скриншот пишется как есть
+            manifest.put("screenshot", writeBlob(blobs, artifact.getScreenshot(), ".png", false));
+        }
+        if (artifact.getPageSource() != null) {
+            final String extension = artifact.getPageSource().startsWith("<?xml") ? ".xml.gz" : ".html.gz";
+            manifest.put("pageSource", writeBlob(blobs, artifact.getPageSource().getBytes(StandardCharsets.UTF_8), extension, true));
+        }
+        manifest.put("commands", writeBlob(blobs,
+                String.join("\n", artifact.getRecentCommands()).getBytes(StandardCharsets.UTF_8), ".log.gz", true));
+
+        final Path folder = Files.createDirectories(directory.resolve(
+                sanitize(artifact.getTestName()) + "-" + FOLDER_TIME.format(artifact.getTime())));
+        Files.write(folder.resolve("failure.json"), new Json().toJson(manifest).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Пишет содержимое в blobs/&lt;sha256&gt;&lt;ext&gt;, если такого файла ещё нет
+     *
+     * @return путь к файлу относительно каталога артефактов
+     */
+    private String writeBlob(final Path blobs, final byte[] content, final String extension, final boolean compress)
+            throws IOException {
+        final String name = sha256(content) + extension;
+        final Path blob = blobs.resolve(name);
+        if (writtenHashes.contains(name) || Files.exists(blob)) {
+            deduplicated.incrementAndGet();
+            return BLOBS_DIR + "/" + name;
+        }
+        final Path temporary = blobs.resolve(name + ".tmp");
+        try {
+            try (OutputStream out = compress ? new GZIPOutputStream(Files.newOutputStream(temporary)) : Files.newOutputStream(temporary)) {
+                out.write(content);
+            }
+            Files.move(temporary, blob);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        // Хеш запоминается только после записи, иначе неудачная попытка выдавала бы ссылку на несуществующий файл
+        writtenHashes.add(name);
+        return BLOBS_DIR + "/" + name;
+    }
+
+    private static String sha256(final byte[] content) {
+        try {
+            final StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String sanitize(final String name) {
+        return name.replaceAll("[^\\p{L}\\p{N}._-]+", "_");
+    }
+
+    /**
+     * Данные, снятые в тестовом потоке в момент падения. Скриншот и page source могут отсутствовать
+     */
+    public static final class FailureArtifact {
+        private final String testName;
+        private final LocalDateTime time = LocalDateTime.now();
+        private final String error;
+        private final byte[] screenshot;
+        private final String pageSource;
+        private final List<String> recentCommands;
+
+        public FailureArtifact(final String testName, final String error, final byte[] screenshot,
+                               final String pageSource, final List<String> recentCommands) {
+            this.testName = testName;
+            this.error = error;
+            this.screenshot = screenshot;
+            this.pageSource = pageSource;
+            this.recentCommands = recentCommands;
+        }
+
+        public String getTestName() {
+            return testName;
+        }
+
+        public LocalDateTime getTime() {
+            return time;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public byte[] getScreenshot() {
+            return screenshot;
+        }
+
+        public String getPageSource() {
+            return pageSource;
+        }
+
+        public List<String> getRecentCommands() {
+            return recentCommands;
+        }
+    }
+}
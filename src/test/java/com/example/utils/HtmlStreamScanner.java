@@ -0,0 +1,310 @@
+package com.example.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Потоковый сканер HTML для проверок без браузера.
+ * Читает документ один раз и собирает только элементы с нужными id: имя тега, атрибуты и, для запрошенных id,
+ * текстовое содержимое. DOM не строится; как только все нужные элементы найдены, чтение прекращается,
+ * и остаток страницы не загружается
+ */
+public class HtmlStreamScanner {
+
+    private static final Pattern ATTRIBUTE = Pattern.compile("([^\\s=/]+)(?:\\s*=\\s*(\"[^\"]*\"|'[^']*'|[^\\s>]+))?");
+    private static final Set<String> VOID_TAGS = Set.of("area", "base", "br", "col", "embed", "hr", "img", "input",
+            "link", "meta", "source", "track", "wbr");
+    private static final Set<String> RAW_TEXT_TAGS = Set.of("script", "style", "textarea", "title");
+
+    private final Reader reader;
+    private final Set<String> wantedIds;
+    private final Set<String> textIds;
+    private final Map<String, Element> found = new LinkedHashMap<>();
+
+    private String captureTag;
+    private String captureId;
+    private int captureDepth;
+    private StringBuilder captureText;
+
+    private HtmlStreamScanner(final Reader reader, final Set<String> wantedIds, final Set<String> textIds) {
+        this.reader = reader;
+        this.wantedIds = wantedIds;
+        this.textIds = textIds;
+    }
+
+    /**
+     * Сканирует документ
+     *
+     * @param wantedIds id элементов, которые нужно найти
+     * @param textIds   id элементов, для которых нужен текст (подмножество wantedIds)
+     * @return найденные элементы по id
+     */
+    public static Map<String, Element> scan(final Reader reader, final Set<String> wantedIds, final Set<String> textIds)
+            throws IOException {
+        final HtmlStreamScanner scanner = new HtmlStreamScanner(
+                reader instanceof BufferedReader ? reader : new BufferedReader(reader), wantedIds, textIds);
+        scanner.run();
+        return Collections.unmodifiableMap(scanner.found);
+    }
+
+    private void run() throws IOException {
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c == '<') {
+                readTag();
+                if (captureTag == null && found.size() == wantedIds.size()) {
+                    return;
+                }
+            } else if (captureText != null) {
+                captureText.append((char) c);
+            }
+        }
+    }
+
+    private void readTag() throws IOException {
+        reader.mark(1);
+        final int first = reader.read();
+        if (first == -1) {
+            return;
+        }
+        if (!isTagStart(first)) {
+            // "<" без имени тега после него - обычный текст, как в браузере
+            reader.reset();
+            if (captureText != null) {
+                captureText.append('<');
+            }
+            return;
+        }
+        if (first == '!') {
+            skipDeclarationOrComment();
+            return;
+        }
+        if (first == '?') {
+            skipUntil(">");
+            return;
+        }
+        final StringBuilder tag = new StringBuilder().append((char) first);
+        char quote = 0;
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = (char) c;
+            } else if (c == '>') {
+                break;
+            }
+            tag.append((char) c);
+        }
+        if (first == '/') {
+            endTag(tagName(tag.substring(1)));
+        } else {
+            startTag(tag.toString());
+        }
+    }
+
+    private void startTag(final String content) throws IOException {
+        final String name = tagName(content);
+        if (name.isEmpty()) {
+            return;
+        }
+        final boolean selfClosing = content.endsWith("/") || VOID_TAGS.contains(name);
+        if (captureTag != null && name.equals(captureTag) && !selfClosing) {
+            captureDepth++;
+        }
+        final Map<String, String> attributes = parseAttributes(content.substring(name.length()));
+        final String id = attributes.get("id");
+        if (id != null && wantedIds.contains(id) && !found.containsKey(id)) {
+            found.put(id, new Element(name, attributes));
+            if (captureTag == null && textIds.contains(id) && !selfClosing) {
+                captureTag = name;
+                captureId = id;
+                captureDepth = 1;
+                captureText = new StringBuilder();
+            }
+        }
+        if (RAW_TEXT_TAGS.contains(name) && !selfClosing) {
+            skipUntil("</" + name);
+            skipUntil(">");
+        }
+    }
+
+    private void endTag(final String name) {
+        if (captureTag == null || !name.equals(captureTag)) {
+            return;
+        }
+        captureDepth--;
+        if (captureDepth == 0) {
+            found.get(captureId).text = decodeEntities(captureText.toString()).replaceAll("\\s+", " ").trim();
+            captureTag = null;
+            captureId = null;
+            captureText = null;
+        }
+    }
+
+    private void skipDeclarationOrComment() throws IOException {
+        reader.mark(2);
+        if (reader.read() == '-' && reader.read() == '-') {
+            skipUntil("-->");
+            return;
+        }
+        reader.reset();
+        skipUntil(">");
+    }
+
+    /**
+     * Пропускает ввод до указанной последовательности включительно (без учёта регистра).
+     * При несовпадении совпавшая часть откатывается по префикс-функции (КМП), поэтому "--->" закрывает "-->"
+     */
+    private void skipUntil(final String terminator) throws IOException {
+        final int[] fallback = prefixFunction(terminator);
+        int matched = 0;
+        int c;
+        while ((c = reader.read()) != -1) {
+            final char lower = Character.toLowerCase((char) c);
+            while (matched > 0 && lower != terminator.charAt(matched)) {
+                matched = fallback[matched - 1];
+            }
+            if (lower == terminator.charAt(matched)) {
+                matched++;
+                if (matched == terminator.length()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static int[] prefixFunction(final String pattern) {
+        final int[] prefix = new int[pattern.length()];
+        for (int i = 1, k = 0; i < pattern.length(); i++) {
+            while (k > 0 && pattern.charAt(i) != pattern.charAt(k)) {
+                k = prefix[k - 1];
+            }
+            if (pattern.charAt(i) == pattern.charAt(k)) {
+                k++;
+            }
+            prefix[i] = k;
+        }
+        return prefix;
+    }
+
+    private static boolean isTagStart(final int c) {
+        return c == '/' || c == '!' || c == '?' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static String tagName(final String content) {
+        int end = 0;
+        while (end < content.length() && !Character.isWhitespace(content.charAt(end))
+                && content.charAt(end) != '/' && content.charAt(end) != '>') {
+            end++;
+        }
+        return content.substring(0, end).toLowerCase();
+    }
+
+    private static Map<String, String> parseAttributes(final String content) {
+        final Map<String, String> attributes = new HashMap<>();
+        final Matcher matcher = ATTRIBUTE.matcher(content);
+        while (matcher.find()) {
+            String value = matcher.group(2);
+            if (value == null) {
+                value = "";
+            } else if (value.startsWith("\"") || value.startsWith("'")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            attributes.putIfAbsent(matcher.group(1).toLowerCase(), decodeEntities(value));
+        }
+        return attributes;
+    }
+
+    private static String decodeEntities(final String text) {
+        if (text.indexOf('&') < 0) {
+            return text;
+        }
+        final StringBuilder decoded = new StringBuilder(text.length());
+        int i = 0;
+        while (i < text.length()) {
+            final char c = text.charAt(i);
+            final int end = c == '&' ? text.indexOf(';', i) : -1;
+            if (end < 0 || end - i > 10) {
+                decoded.append(c);
+                i++;
+                continue;
+            }
+            final String entity = text.substring(i + 1, end);
+            final String replacement = decodeEntity(entity);
+            decoded.append(replacement == null ? text.substring(i, end + 1) : replacement);
+            i = end + 1;
+        }
+        return decoded.toString();
+    }
+
+    private static String decodeEntity(final String entity) {
+        switch (entity) {
+            case "amp":
+                return "&";
+            case "lt":
+                return "<";
+            case "gt":
+                return ">";
+            case "quot":
+                return "\"";
+            case "apos":
+                return "'";
+            case "nbsp":
+                return " ";
+            default:
+                break;
+        }
+        try {
+            if (entity.startsWith("#x") || entity.startsWith("#X")) {
+                return new String(Character.toChars(Integer.parseInt(entity.substring(2), 16)));
+            }
+            if (entity.startsWith("#")) {
+                return new String(Character.toChars(Integer.parseInt(entity.substring(1))));
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * Найденный элемент: тег, атрибуты и текст (только для элементов, текст которых запрашивался)
+     */
+    public static final class Element {
+        private final String tagName;
+        private final Map<String, String> attributes;
+        private String text = "";
+
+        private Element(final String tagName, final Map<String, String> attributes) {
+            this.tagName = tagName;
+            this.attributes = attributes;
+        }
+
+        public String getTagName() {
+            return tagName;
+        }
+
+        public String getAttribute(final String name) {
+            return attributes.get(name);
+        }
+
+        public boolean hasAttribute(final String name) {
+            return attributes.containsKey(name);
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+}
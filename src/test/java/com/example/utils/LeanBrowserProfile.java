@@ -0,0 +1,97 @@
+package com.example.utils;
+
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.chromium.HasCdp;
+import org.openqa.selenium.firefox.FirefoxOptions;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Облегчённый профиль браузера (browser.profile=lean).
+ * Headless с фиксированным размером окна, стратегия загрузки eager и блокировка картинок,
+ * шрифтов, медиа и аналитики - тестам нужны только #firstHeading, #searchInput и #bodyContent.
+ * В Chrome запросы блокируются только через CDP (Network.setBlockedURLs), поэтому тест может разрешить
+ * отдельные шаблоны; в Firefox блокировка задаётся настройками браузера и список разрешённых игнорируется
+ */
+public class LeanBrowserProfile {
+
+    /**
+     * Шаблоны запросов, которые блокируются по умолчанию
+     */
+    public static final List<String> BLOCKED_URL_PATTERNS = List.of(
+            "*.png", "*.jpg", "*.jpeg", "*.gif", "*.svg", "*.webp", "*.ico",
+            "*.woff", "*.woff2", "*.ttf", "*.otf", "*.eot",
+            "*.mp3", "*.mp4", "*.ogg", "*.ogv", "*.oga", "*.webm",
+            "*intake-analytics.wikimedia.org*", "*/beacon/*", "*CentralAutoLogin*"
+    );
+
+    private static final int WINDOW_WIDTH = Integer.getInteger("browser.width", 1366);
+    private static final int WINDOW_HEIGHT = Integer.getInteger("browser.height", 768);
+
+    /**
+     * Включён ли облегчённый профиль
+     */
+    public static boolean isEnabled() {
+        return "lean".equalsIgnoreCase(System.getProperty("browser.profile", "full"));
+    }
+
+    public static void apply(final ChromeOptions options) {
+        options.addArguments(
+                "--headless=new",
+                "--window-size=" + WINDOW_WIDTH + "," + WINDOW_HEIGHT,
+                "--mute-audio",
+                "--disable-extensions"
+        );
+        options.setPageLoadStrategy(PageLoadStrategy.EAGER);
+    }
+
+    /**
+     * Для Firefox перехват запросов через BiDi в используемой версии Selenium недоступен,
+     * поэтому картинки, шрифты и медиа отключаются настройками браузера на всю сессию
+     */
+    public static void apply(final FirefoxOptions options) {
+        options.addArguments("-headless", "--width=" + WINDOW_WIDTH, "--height=" + WINDOW_HEIGHT);
+        options.setPageLoadStrategy(PageLoadStrategy.EAGER);
+        options.addPreference("permissions.default.image", 2);
+        options.addPreference("browser.display.use_document_fonts", 0);
+        options.addPreference("gfx.downloadable_fonts.enabled", false);
+        options.addPreference("media.autoplay.default", 5);
+        options.addPreference("media.autoplay.blocking_policy", 2);
+    }
+
+    /**
+     * Включает блокировку запросов по шаблонам по умолчанию
+     */
+    public static void blockResources(final WebDriver driver) {
+        blockResources(driver, Collections.emptyList());
+    }
+
+    /**
+     * Включает блокировку запросов через CDP, исключая шаблоны из списка разрешённых
+     *
+     * Без CDP (Firefox) непустой список только записывается в лог: блокировка остаётся прежней
+     *
+     * @param allowList шаблоны из {@link #BLOCKED_URL_PATTERNS}, которые нужно пропускать в текущем тесте
+     */
+    public static void blockResources(final WebDriver driver, final Collection<String> allowList) {
+        if (!(driver instanceof HasCdp)) {
+            if (!allowList.isEmpty()) {
+                System.out.println("Разрешить ресурсы " + allowList
+                        + " можно только в браузере с CDP (chrome): в Firefox облегчённый профиль блокирует их настройками браузера, тест продолжается с блокировкой по умолчанию");
+            }
+            return;
+        }
+        final List<String> blocked = BLOCKED_URL_PATTERNS.stream()
+                .filter(pattern -> !allowList.contains(pattern))
+                .collect(Collectors.toList());
+        final HasCdp cdp = (HasCdp) driver;
+        cdp.executeCdpCommand("Network.enable", Map.of());
+        cdp.executeCdpCommand("Network.setBlockedURLs", Map.of("urls", blocked));
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.utils;
+
+import io.appium.java_client.AppiumBy;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Быстрые проверки наличия элементов.
+ * Несколько альтернативных resource-id разрешаются одним запросом UiAutomator (resourceIdMatches),
+ * а все проверки выполняются с отключённым неявным ожиданием, поэтому отсутствие элемента стоит миллисекунды.
+ * Неявное ожидание драйвера ограничивается оставшимся бюджетом теста ({@link TestDeadline}), чтобы поиск элемента
+ * внутри ожидания не выходил за бюджет
+ */
+public class LocatorProbe {
+
+    /**
+     * Неявное ожидание, которое драйверы выставляют при создании и которое восстанавливается после проверки
+     */
+    public static final Duration DEFAULT_IMPLICIT_WAIT = Duration.ofSeconds(10);
+
+    /**
+     * Последнее неявное ожидание, выставленное каждому драйверу, - чтобы не отправлять одно и то же значение повторно
+     */
+    private static final Map<WebDriver, Duration> IMPLICIT_WAITS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Выставляет неявное ожидание по умолчанию, ограниченное оставшимся бюджетом теста (с точностью до секунды).
+     * Команда отправляется драйверу, только если значение изменилось
+     */
+    public static void applyImplicitWait(final WebDriver driver) {
+        final Duration clamped = TestDeadline.clamp(DEFAULT_IMPLICIT_WAIT);
+        setImplicitWait(driver, Duration.ofSeconds(clamped.getSeconds()));
+    }
+
+    private static void setImplicitWait(final WebDriver driver, final Duration implicitWait) {
+        if (implicitWait.equals(IMPLICIT_WAITS.get(driver))) {
+            return;
+        }
+        driver.manage().timeouts().implicitlyWait(implicitWait);
+        IMPLICIT_WAITS.put(driver, implicitWait);
+    }
+
+    /**
+     * Выполняет действие с нулевым неявным ожиданием и затем восстанавливает его с учётом бюджета теста
+     */
+    public static <T> T withoutImplicitWait(final WebDriver driver, final Supplier<T> action) {
+        setImplicitWait(driver, Duration.ZERO);
+        try {
+            return action.get();
+        } finally {
+            applyImplicitWait(driver);
+        }
+    }
+
+    /**
+     * Ищет элементы без неявного ожидания
+     */
+    public static List<WebElement> findNow(final WebDriver driver, final By locator) {
+        return withoutImplicitWait(driver, () -> driver.findElements(locator));
+    }
+
+    /**
+     * Проверяет наличие элемента без неявного ожидания
+     */
+    public static boolean isPresent(final WebDriver driver, final By locator) {
+        return !findNow(driver, locator).isEmpty();
+    }
+
+    /**
+     * Проверяет отсутствие элемента без неявного ожидания
+     */
+    public static boolean isAbsent(final WebDriver driver, final By locator) {
+        return findNow(driver, locator).isEmpty();
+    }
+
+    /**
+     * Ищет отображаемый элемент среди кандидатов resource-id одним запросом, см. {@link #probeDisplayedIds(WebDriver, List)}
+     */
+    public static ProbeResult probeDisplayedIds(final WebDriver driver, final String... resourceIds) {
+        return probeDisplayedIds(driver, Arrays.asList(resourceIds));
+    }
+
+    /**
+     * Ищет отображаемый элемент среди кандидатов resource-id одним запросом
+     * new UiSelector().resourceIdMatches("a|b|c") - UiAutomator находит только видимые элементы.
+     * Если совпало несколько, берётся первый в порядке дерева: resource-id запрашивается только у него
+     */
+    public static ProbeResult probeDisplayedIds(final WebDriver driver, final List<String> resourceIds) {
+        final String idPattern = resourceIds.stream()
+                .map(LocatorProbe::quoteResourceId)
+                .collect(Collectors.joining("|"));
+        final List<WebElement> matches = findNow(driver,
+                AppiumBy.androidUIAutomator("new UiSelector().resourceIdMatches(\"" + idPattern + "\")"));
+        if (matches.isEmpty()) {
+            return ProbeResult.NOT_FOUND;
+        }
+        final WebElement first = matches.get(0);
+        final int index = resourceIds.size() == 1 ? 0 : resourceIds.indexOf(first.getAttribute("resource-id"));
+        return index < 0 ? ProbeResult.NOT_FOUND : new ProbeResult(index, resourceIds.get(index), first);
+    }
+
+    /**
+     * Экранирует resource-id для регулярного выражения без обратной косой черты,
+     * которую пришлось бы экранировать ещё и в строке UiSelector: метасимволы заключаются в [ ]
+     */
+    private static String quoteResourceId(final String resourceId) {
+        final StringBuilder quoted = new StringBuilder(resourceId.length() + 8);
+        for (char c : resourceId.toCharArray()) {
+            if (Character.isLetterOrDigit(c) || "_:/-".indexOf(c) >= 0) {
+                quoted.append(c);
+            } else if (".*+?|(){}$".indexOf(c) >= 0) {
+                quoted.append('[').append(c).append(']');
+            } else {
+                throw new IllegalArgumentException("Недопустимый символ '" + c + "' в resource-id " + resourceId);
+            }
+        }
+        return quoted.toString();
+    }
+
+    /**
+     * Результат проверки набора локаторов: какой кандидат совпал и найденный элемент
+     */
+    public static class ProbeResult {
+        static final ProbeResult NOT_FOUND = new ProbeResult(-1, null, null);
+
+        private final int matchedIndex;
+        private final String matchedId;
+        private final WebElement element;
+
+        ProbeResult(final int matchedIndex, final String matchedId, final WebElement element) {
+            this.matchedIndex = matchedIndex;
+            this.matchedId = matchedId;
+            this.element = element;
+        }
+
+        public boolean isFound() {
+            return element != null;
+        }
+
+        public int getMatchedIndex() {
+            return matchedIndex;
+        }
+
+        public String getMatchedId() {
+            return matchedId;
+        }
+
+        public WebElement getElement() {
+            return element;
+        }
+    }
+}
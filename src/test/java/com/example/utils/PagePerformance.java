@@ -0,0 +1,290 @@
+package com.example.utils;
+
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Метрики производительности страниц в браузере.
+ * После загрузки страницы снимаются Navigation Timing, Resource Timing, LCP и CLS (буферизованный
+ * PerformanceObserver) и размер JS-кучи (performance.memory, только Chromium). Каждый снимок проверяется
+ * по бюджетам из perf.budgets и попадает в гистограммы прогона, которые выгружаются в page-performance.json
+ * с перцентилями по страницам. Включается свойством perf.capture
+ */
+public class PagePerformance {
+
+    private static final Path BUDGETS_FILE = Paths.get(System.getProperty("perf.budgets", "src/test/resources/page-budgets.properties"));
+    private static final Duration DOCUMENT_TIMEOUT = Duration.ofSeconds(15);
+
+    /**
+     * Готовый документ: его timeOrigin, пока загрузка не завершена - null
+     */
+    private static final String DOCUMENT_SCRIPT =
+            "return document.readyState === 'complete' ? performance.timeOrigin : null;";
+
+    /**
+     * Снимок метрик. Записи LCP и layout-shift запрашиваются с buffered: true и забираются через takeRecords(),
+     * поэтому видны и события, случившиеся до запуска скрипта
+     */
+    private static final String CAPTURE_SCRIPT = String.join("\n",
+            "var done = arguments[arguments.length - 1];",
+            "var lcp = null, cls = null, observers = [];",
+            "function observe(type, handle) {",
+            "  try {",
+            "    var observer = new PerformanceObserver(function (list) { list.getEntries().forEach(handle); });",
+            "    observer.observe({type: type, buffered: true});",
+            "    observers.push({observer: observer, handle: handle});",
+            "  } catch (e) {}",
+            "}",
+            "observe('largest-contentful-paint', function (e) { lcp = e.renderTime || e.loadTime || e.startTime; });",
+            "observe('layout-shift', function (e) { if (!e.hadRecentInput) { cls = (cls || 0) + e.value; } });",
+            "setTimeout(function () {",
+            "  observers.forEach(function (o) { o.observer.takeRecords().forEach(o.handle); o.observer.disconnect(); });",
+            "  var nav = performance.getEntriesByType('navigation')[0];",
+            "  var resources = performance.getEntriesByType('resource');",
+            "  var transfer = 0, slowest = 0;",
+            "  resources.forEach(function (r) { transfer += r.transferSize || 0; slowest = Math.max(slowest, r.duration); });",
+            "  var result = {url: location.href, lcp: lcp, cls: cls, resources: resources.length,",
+            "    transfer: transfer / 1024, slowestResource: slowest};",
+            "  if (nav) {",
+            "    result.ttfb = nav.responseStart - nav.startTime;",
+            "    result.domContentLoaded = nav.domContentLoadedEventEnd - nav.startTime;",
+            "    result.load = nav.loadEventEnd - nav.startTime;",
+            "  }",
+            "  if (performance.memory) { result.jsHeap = performance.memory.usedJSHeapSize / 1024; }",
+            "  done(result);",
+            "}, 0);");
+
+    private static final ConcurrentMap<String, ConcurrentMap<Metric, LatencyHistogram>> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static volatile Properties budgets;
+
+    /**
+     * Снимаемые метрики. Имя - часть ключа бюджета; значения хранятся в гистограмме умноженными на scale
+     */
+    public enum Metric {
+        TTFB("ttfb.ms", "ttfb", 1),
+        DOM_CONTENT_LOADED("dom.content.loaded.ms", "domContentLoaded", 1),
+        LOAD("load.ms", "load", 1),
+        LCP("lcp.ms", "lcp", 1),
+        CLS("cls", "cls", 1000),
+        RESOURCES("resources", "resources", 1),
+        TRANSFER("transfer.kb", "transfer", 1),
+        SLOWEST_RESOURCE("slowest.resource.ms", "slowestResource", 1),
+        JS_HEAP("js.heap.kb", "jsHeap", 1);
+
+        private final String key;
+        private final String scriptField;
+        private final int scale;
+
+        Metric(final String key, final String scriptField, final int scale) {
+            this.key = key;
+            this.scriptField = scriptField;
+            this.scale = scale;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean("perf.capture");
+    }
+
+    /**
+     * Идентификатор текущего документа (performance.timeOrigin) - чтобы после действия дождаться нового документа
+     */
+    public static Object documentId(final WebDriver driver) {
+        try {
+            return ((JavascriptExecutor) driver).executeScript("return performance.timeOrigin;");
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Дожидается полной загрузки документа, отличного от previousDocument, и снимает его метрики.
+     * Ошибка снятия метрик тест не роняет: снимок пропускается
+     *
+     * @param page             имя страницы в отчёте и бюджетах (main, search, random)
+     * @param previousDocument документ до навигации или null, если подходит текущий
+     * @return снимок или null, если метрики снять не удалось
+     */
+    @SuppressWarnings("unchecked")
+    public static Sample capture(final WebDriver driver, final String page, final Object previousDocument) {
+        try {
+            final Object document = new TimedWebDriverWait(driver, DOCUMENT_TIMEOUT)
+                    .ignoring(JavascriptException.class)
+                    .until(d -> {
+                        final Object origin = ((JavascriptExecutor) d).executeScript(DOCUMENT_SCRIPT);
+                        return origin != null && !origin.equals(previousDocument) ? origin : null;
+                    });
+            final Map<String, Object> raw = (Map<String, Object>) ((JavascriptExecutor) driver).executeAsyncScript(CAPTURE_SCRIPT);
+            final Map<Metric, Double> values = new EnumMap<>(Metric.class);
+            for (Metric metric : Metric.values()) {
+                final Object value = raw.get(metric.scriptField);
+                if (value instanceof Number) {
+                    values.put(metric, ((Number) value).doubleValue());
+                }
+            }
+            final Sample sample = new Sample(page, String.valueOf(raw.get("url")), document, values);
+            record(sample);
+            return sample;
+        } catch (RuntimeException e) {
+            System.out.println("Не удалось снять метрики страницы " + page + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void record(final Sample sample) {
+        final ConcurrentMap<Metric, LatencyHistogram> byMetric = HISTOGRAMS.computeIfAbsent(sample.page, name -> new ConcurrentHashMap<>());
+        for (Map.Entry<Metric, Double> entry : sample.values.entrySet()) {
+            byMetric.computeIfAbsent(entry.getKey(), metric -> new LatencyHistogram())
+                    .record(Math.round(entry.getValue() * entry.getKey().scale));
+        }
+    }
+
+    /**
+     * Нарушения бюджетов во всех снимках, пустой список - все бюджеты соблюдены
+     */
+    public static List<String> budgetViolations(final List<Sample> samples) {
+        final List<String> violations = new ArrayList<>();
+        for (Sample sample : samples) {
+            violations.addAll(sample.budgetViolations());
+        }
+        return violations;
+    }
+
+    /**
+     * Бюджет метрики для страницы: ключ "&lt;страница&gt;.&lt;метрика&gt;", затем "*.&lt;метрика&gt;"; null - бюджета нет
+     */
+    public static Double budget(final String page, final Metric metric) {
+        final Properties loaded = loadBudgets();
+        final String value = loaded.getProperty(page + "." + metric.key, loaded.getProperty("*." + metric.key));
+        return value == null ? null : Double.valueOf(value.trim());
+    }
+
+    private static Properties loadBudgets() {
+        Properties loaded = budgets;
+        if (loaded != null) {
+            return loaded;
+        }
+        loaded = new Properties();
+        if (Files.exists(BUDGETS_FILE)) {
+            try (InputStream in = Files.newInputStream(BUDGETS_FILE)) {
+                loaded.load(in);
+            } catch (IOException e) {
+                System.out.println("Не удалось прочитать бюджеты страниц: " + e.getMessage());
+            }
+        }
+        budgets = loaded;
+        return loaded;
+    }
+
+    /**
+     * Выгружает перцентили метрик по страницам в page-performance.json; без снимков ничего не пишет
+     */
+    public static void export(final Path directory) throws IOException {
+        if (HISTOGRAMS.isEmpty()) {
+            return;
+        }
+        final List<Map<String, Object>> pages = new ArrayList<>();
+        for (Map.Entry<String, ConcurrentMap<Metric, LatencyHistogram>> page : new TreeMap<>(HISTOGRAMS).entrySet()) {
+            final Map<String, Object> metrics = new LinkedHashMap<>();
+            for (Metric metric : Metric.values()) {
+                final LatencyHistogram histogram = page.getValue().get(metric);
+                if (histogram == null) {
+                    continue;
+                }
+                final Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("count", histogram.getCount());
+                summary.put("p50", scaled(histogram.percentile(0.5), metric));
+                summary.put("p75", scaled(histogram.percentile(0.75), metric));
+                summary.put("p95", scaled(histogram.percentile(0.95), metric));
+                summary.put("max", scaled(histogram.getMaxMicros(), metric));
+                summary.put("budget", budget(page.getKey(), metric));
+                metrics.put(metric.key, summary);
+            }
+            pages.add(Map.of("page", page.getKey(), "metrics", metrics));
+        }
+        Files.createDirectories(directory);
+        Files.write(directory.resolve("page-performance.json"),
+                new Json().toJson(Map.of("pages", pages)).getBytes(StandardCharsets.UTF_8));
+        System.out.println("Метрики страниц сохранены в " + directory.toAbsolutePath());
+    }
+
+    private static double scaled(final long value, final Metric metric) {
+        return (double) value / metric.scale;
+    }
+
+    /**
+     * Снимок метрик одной загрузки страницы
+     */
+    public static final class Sample {
+        private final String page;
+        private final String url;
+        private final Object document;
+        private final Map<Metric, Double> values;
+
+        private Sample(final String page, final String url, final Object document, final Map<Metric, Double> values) {
+            this.page = page;
+            this.url = url;
+            this.document = document;
+            this.values = Collections.unmodifiableMap(values);
+        }
+
+        public String getPage() {
+            return page;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * Документ, с которого снят снимок (performance.timeOrigin)
+         */
+        public Object getDocument() {
+            return document;
+        }
+
+        /**
+         * Значение метрики или null, если браузер её не поддерживает
+         */
+        public Double get(final Metric metric) {
+            return values.get(metric);
+        }
+
+        public List<String> budgetViolations() {
+            final List<String> violations = new ArrayList<>();
+            for (Map.Entry<Metric, Double> entry : values.entrySet()) {
+                final Double limit = budget(page, entry.getKey());
+                if (limit != null && entry.getValue() > limit) {
+                    violations.add(String.format(Locale.ROOT, "%s %s = %.3f > %.3f (%s)",
+                            page, entry.getKey().key, entry.getValue(), limit, url));
+                }
+            }
+            return violations;
+        }
+    }
+}
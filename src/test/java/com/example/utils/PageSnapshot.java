@@ -0,0 +1,187 @@
+package com.example.utils;
+
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.WebDriver;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Снимок иерархии UI экрана.
+ * Иерархия загружается одним вызовом getPageSource() и разбирается локально потоковым XML-парсером (StAX),
+ * после чего проверки наличия, видимости, текста и границ элементов не требуют обращений к серверу.
+ * Снимок актуален до следующего действия на экране - за инвалидацию отвечает владелец снимка
+ */
+public class PageSnapshot {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private final Map<String, List<Node>> nodesByResourceId;
+    private final int nodeCount;
+
+    private PageSnapshot(final Map<String, List<Node>> nodesByResourceId, final int nodeCount) {
+        this.nodesByResourceId = nodesByResourceId;
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * Загружает иерархию текущего экрана одним запросом
+     */
+    public static PageSnapshot capture(final WebDriver driver) {
+        return parse(driver.getPageSource());
+    }
+
+    /**
+     * Разбирает XML иерархии UiAutomator2
+     */
+    public static PageSnapshot parse(final String pageSource) {
+        final Map<String, List<Node>> nodes = new HashMap<>();
+        int count = 0;
+        try {
+            final XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(pageSource));
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    count++;
+                    final String resourceId = reader.getAttributeValue(null, "resource-id");
+                    if (resourceId == null || resourceId.isEmpty()) {
+                        continue;
+                    }
+                    nodes.computeIfAbsent(resourceId, id -> new ArrayList<>(1)).add(new Node(
+                            reader.getLocalName(),
+                            valueOrEmpty(reader.getAttributeValue(null, "text")),
+                            Boolean.parseBoolean(reader.getAttributeValue(null, "displayed")),
+                            parseBounds(reader.getAttributeValue(null, "bounds"))
+                    ));
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Не удалось разобрать иерархию экрана: " + e.getMessage(), e);
+        }
+        return new PageSnapshot(nodes, count);
+    }
+
+    /**
+     * Есть ли на экране элемент с указанным resource-id
+     */
+    public boolean isPresent(final String resourceId) {
+        return nodesByResourceId.containsKey(resourceId);
+    }
+
+    /**
+     * Отображается ли первый элемент с указанным resource-id
+     */
+    public boolean isDisplayed(final String resourceId) {
+        final List<Node> nodes = nodes(resourceId);
+        return !nodes.isEmpty() && nodes.get(0).displayed;
+    }
+
+    /**
+     * Отображается ли хотя бы один из элементов-кандидатов
+     */
+    public boolean isAnyDisplayed(final String... resourceIds) {
+        for (String resourceId : resourceIds) {
+            if (isDisplayed(resourceId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Количество элементов с указанным resource-id
+     */
+    public int count(final String resourceId) {
+        return nodes(resourceId).size();
+    }
+
+    /**
+     * Текст первого элемента с указанным resource-id или пустая строка
+     */
+    public String getText(final String resourceId) {
+        final List<Node> nodes = nodes(resourceId);
+        return nodes.isEmpty() ? "" : nodes.get(0).text;
+    }
+
+    /**
+     * Класс первого элемента с указанным resource-id или null
+     */
+    public String getClassName(final String resourceId) {
+        final List<Node> nodes = nodes(resourceId);
+        return nodes.isEmpty() ? null : nodes.get(0).className;
+    }
+
+    /**
+     * Границы первого элемента с указанным resource-id или null
+     */
+    public Rectangle getBounds(final String resourceId) {
+        final List<Node> nodes = nodes(resourceId);
+        return nodes.isEmpty() ? null : nodes.get(0).bounds;
+    }
+
+    /**
+     * Общее число узлов иерархии
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    private List<Node> nodes(final String resourceId) {
+        return nodesByResourceId.getOrDefault(resourceId, Collections.emptyList());
+    }
+
+    /**
+     * Разбирает границы формата "[x1,y1][x2,y2]"
+     */
+    private static Rectangle parseBounds(final String bounds) {
+        if (bounds == null || bounds.isEmpty()) {
+            return null;
+        }
+        final String[] parts = bounds.replace("][", ",").replace("[", "").replace("]", "").split(",");
+        if (parts.length != 4) {
+            return null;
+        }
+        final int x1 = Integer.parseInt(parts[0].trim());
+        final int y1 = Integer.parseInt(parts[1].trim());
+        final int x2 = Integer.parseInt(parts[2].trim());
+        final int y2 = Integer.parseInt(parts[3].trim());
+        return new Rectangle(x1, y1, y2 - y1, x2 - x1);
+    }
+
+    private static String valueOrEmpty(final String value) {
+        return value == null ? "" : value;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private static class Node {
+        private final String className;
+        private final String text;
+        private final boolean displayed;
+        private final Rectangle bounds;
+
+        private Node(final String className, final String text, final boolean displayed, final Rectangle bounds) {
+            this.className = className;
+            this.text = text;
+            this.displayed = displayed;
+            this.bounds = bounds;
+        }
+    }
+}
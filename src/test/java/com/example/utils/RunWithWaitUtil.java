@@ -1,41 +1,146 @@
 package com.example.utils;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Ожидания в тестах.
+ * Вместо фиксированных пауз действие объявляет постусловие, а утилита опрашивает его
+ * с нарастающим интервалом и возвращает управление, как только условие выполнено
+ */
 public class RunWithWaitUtil {
 
+    private static final long INITIAL_POLL_INTERVAL = 50L;
+    private static final long MAX_POLL_INTERVAL = 500L;
+    private static final double POLL_BACKOFF_FACTOR = 1.5;
+
+    private static final AtomicLong BUDGET_TOTAL = new AtomicLong();
+    private static final AtomicLong WAITED_TOTAL = new AtomicLong();
+
     /**
-     * Выполняет раннабл с ожиданием до выполнения
+     * Выполняет действие и ждёт его постусловия не дольше budgetMillis
+     *
+     * @param description описание постусловия для отчёта, например "search_src_text is present"
+     * @return true, если постусловие выполнилось в пределах бюджета
      */
-    public static void runWithPreWait(final Runnable runnable, final long sleepTime) {
+    public static boolean runUntil(final Runnable action, final String description,
+                                   final BooleanSupplier postcondition, final long budgetMillis) {
+        action.run();
+        return waitUntil(description, postcondition, budgetMillis);
+    }
+
+    /**
+     * Опрашивает условие с нарастающим интервалом (50 мс -> 500 мс), пока оно не выполнится или не истечёт бюджет.
+     * Бюджет дополнительно ограничивается оставшимся временем теста ({@link TestDeadline}).
+     * Исключения при проверке условия считаются невыполненным условием.
+     * Фактическое время ожидания выводится в сравнении с бюджетом - прежней фиксированной паузой
+     *
+     * @return true, если условие выполнилось в пределах бюджета
+     */
+    public static boolean waitUntil(final String description, final BooleanSupplier condition, final long budgetMillis) {
+        TestTimings.begin(TestTimings.Category.EXPLICIT_WAIT);
         try {
-            Thread.sleep(sleepTime);
-            runnable.run();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException(e);
+            return poll(description, condition, TestDeadline.clampMillis(budgetMillis));
+        } finally {
+            TestTimings.end();
         }
     }
 
+    private static boolean poll(final String description, final BooleanSupplier condition, final long budgetMillis) {
+        final long start = System.nanoTime();
+        final long deadline = start + budgetMillis * 1_000_000L;
+        long interval = INITIAL_POLL_INTERVAL;
+        boolean satisfied = check(condition);
+        while (!satisfied) {
+            final long remainingMillis = (deadline - System.nanoTime()) / 1_000_000L;
+            if (remainingMillis <= 0) {
+                break;
+            }
+            pause(Math.min(interval, remainingMillis));
+            interval = Math.min(MAX_POLL_INTERVAL, (long) (interval * POLL_BACKOFF_FACTOR));
+            ElementCachingDecorator.newEpoch();
+            satisfied = check(condition);
+        }
+
+        final long waitedMillis = (System.nanoTime() - start) / 1_000_000L;
+        BUDGET_TOTAL.addAndGet(budgetMillis);
+        WAITED_TOTAL.addAndGet(waitedMillis);
+        System.out.println(String.format("Ожидание [%s]: %s за %d мс из %d мс",
+                description, satisfied ? "выполнено" : "не выполнено", waitedMillis, budgetMillis));
+        return satisfied;
+    }
+
+    /**
+     * Суммарное время, которое ожидания фактически заняли за прогон
+     */
+    public static long getWaitedMillis() {
+        return WAITED_TOTAL.get();
+    }
+
+    /**
+     * Суммарный бюджет ожиданий за прогон - сколько заняли бы фиксированные паузы
+     */
+    public static long getBudgetMillis() {
+        return BUDGET_TOTAL.get();
+    }
+
+    /**
+     * Выполняет раннабл с ожиданием до выполнения
+     *
+     * @deprecated используйте {@link #waitUntil(String, BooleanSupplier, long)} с явным условием
+     */
+    @Deprecated
+    public static void runWithPreWait(final Runnable runnable, final long sleepTime) {
+        sleep(sleepTime);
+        runnable.run();
+    }
+
     /**
      * Выполняет раннабл с ожиданием после выполнения
+     *
+     * @deprecated используйте {@link #runUntil(Runnable, String, BooleanSupplier, long)} с постусловием
      */
+    @Deprecated
     public static void runWithPostWait(final Runnable runnable, final long sleepTime) {
         runnable.run();
-        try {
-            Thread.sleep(sleepTime);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException(e);
-        }
+        sleep(sleepTime);
     }
 
     /**
      * Выполняет раннабл с ожиданием до и после выполнения
+     *
+     * @deprecated используйте {@link #runUntil(Runnable, String, BooleanSupplier, long)} с постусловием
      */
+    @Deprecated
     public static void runWithAroundWait(final Runnable runnable, final long sleepTime) {
+        sleep(sleepTime);
+        runnable.run();
+        sleep(sleepTime);
+    }
+
+    private static boolean check(final BooleanSupplier condition) {
+        try {
+            return condition.getAsBoolean();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Фиксированная пауза устаревших методов - в отчёте о производительности учитывается отдельно от ожиданий
+     */
+    private static void sleep(final long millis) {
+        TestTimings.begin(TestTimings.Category.SLEEP);
+        try {
+            pause(millis);
+        } finally {
+            TestTimings.end();
+        }
+    }
+
+    private static void pause(final long millis) {
         try {
-            Thread.sleep(sleepTime);
-            runnable.run();
-            Thread.sleep(sleepTime);
+            Thread.sleep(millis);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RuntimeException(e);
@@ -0,0 +1,173 @@
+package com.example.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Самообучающийся кэш альтернативных локаторов и способов действия.
+ * Для ключа "страница.элемент@версия приложения" запоминает, какая альтернатива сработала и за сколько,
+ * и при следующих вызовах ставит её первой. Статистика сохраняется в файл (strategy.cache.file,
+ * по умолчанию .cache/strategy-cache.properties), поэтому следующий прогон сразу начинает с победителя
+ */
+public class StrategyCache {
+    private static final Path CACHE_FILE = Paths.get(System.getProperty("strategy.cache.file", ".cache/strategy-cache.properties"));
+    private static final String KEY_SEPARATOR = "|";
+
+    private static final Properties STATS = load();
+    private static final AtomicBoolean DIRTY = new AtomicBoolean();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(StrategyCache::save, "strategy-cache-save"));
+    }
+
+    /**
+     * Формирует ключ кэша для логического элемента страницы и версии приложения
+     */
+    public static String key(final String page, final String element, final String appVersion) {
+        return page + "." + element + "@" + appVersion;
+    }
+
+    /**
+     * Упорядочивает альтернативы по доле успехов (при равенстве - более быстрые, затем в исходном порядке).
+     * Доля сглажена как (успехи + 1) / (попытки + 2): ещё не опробованная альтернатива получает 1/2, поэтому
+     * она идёт раньше той, что когда-то сработала, но с тех пор в основном проваливается
+     */
+    public static List<String> order(final String key, final List<String> alternatives) {
+        final List<String> ordered = new ArrayList<>(alternatives);
+        ordered.sort(Comparator
+                .comparingDouble((String alternative) -> -successRatio(key, alternative))
+                .thenComparingLong(alternative -> averageMillis(key, alternative)));
+        return ordered;
+    }
+
+    /**
+     * Запоминает успешную альтернативу и время её выполнения
+     */
+    public static void recordSuccess(final String key, final String alternative, final long millis) {
+        update(key, alternative, 1, millis, 0);
+    }
+
+    /**
+     * Запоминает неудачную попытку альтернативы
+     */
+    public static void recordFailure(final String key, final String alternative) {
+        update(key, alternative, 0, 0, 1);
+    }
+
+    /**
+     * Пробует альтернативы в выученном порядке до первой успешной или до исчерпания бюджета теста.
+     * Альтернатива успешна, если вернула true без исключения
+     *
+     * @return имя сработавшей альтернативы или null, если не сработала ни одна
+     */
+    public static String firstSuccessful(final String key, final Map<String, BooleanSupplier> alternatives) {
+        return firstSuccessful(key, alternatives, () -> true);
+    }
+
+    /**
+     * Пробует альтернативы в выученном порядке до первой успешной или до исчерпания бюджета теста.
+     * Альтернатива успешна, если вернула true без исключения и после неё выполнилось постусловие действия -
+     * например, клик, который ничего не изменил на экране, успехом не считается
+     *
+     * @param postcondition проверка (обычно с ожиданием) результата действия после каждой альтернативы
+     * @return имя сработавшей альтернативы или null, если не сработала ни одна
+     */
+    public static String firstSuccessful(final String key, final Map<String, BooleanSupplier> alternatives,
+                                         final BooleanSupplier postcondition) {
+        for (String alternative : order(key, new ArrayList<>(alternatives.keySet()))) {
+            if (TestDeadline.isExpired()) {
+                System.out.println("Бюджет теста исчерпан, остальные альтернативы для " + key + " не пробуются");
+                return null;
+            }
+            final long start = System.nanoTime();
+            try {
+                if (alternatives.get(alternative).getAsBoolean() && postcondition.getAsBoolean()) {
+                    recordSuccess(key, alternative, (System.nanoTime() - start) / 1_000_000L);
+                    return alternative;
+                }
+            } catch (RuntimeException e) {
+                System.out.println("Способ " + alternative + " не сработал: " + e.getMessage());
+            }
+            recordFailure(key, alternative);
+        }
+        return null;
+    }
+
+    private static double successRatio(final String key, final String alternative) {
+        final long[] stat = stat(key, alternative);
+        return (stat[0] + 1.0) / (stat[0] + stat[2] + 2.0);
+    }
+
+    private static long averageMillis(final String key, final String alternative) {
+        final long[] stat = stat(key, alternative);
+        return stat[0] == 0 ? Long.MAX_VALUE : stat[1] / stat[0];
+    }
+
+    /**
+     * Статистика альтернативы: {успехи, суммарное время успехов в мс, неудачи}.
+     * Повреждённое или отредактированное вручную значение считается отсутствующим
+     */
+    private static long[] stat(final String key, final String alternative) {
+        final String value = STATS.getProperty(key + KEY_SEPARATOR + alternative);
+        if (value == null) {
+            return new long[3];
+        }
+        final String[] parts = value.split(",");
+        if (parts.length != 3) {
+            return new long[3];
+        }
+        try {
+            final long[] stat = {Long.parseLong(parts[0].trim()), Long.parseLong(parts[1].trim()), Long.parseLong(parts[2].trim())};
+            return stat[0] < 0 || stat[1] < 0 || stat[2] < 0 ? new long[3] : stat;
+        } catch (NumberFormatException e) {
+            return new long[3];
+        }
+    }
+
+    private static synchronized void update(final String key, final String alternative,
+                                            final long successes, final long millis, final long failures) {
+        final long[] stat = stat(key, alternative);
+        STATS.setProperty(key + KEY_SEPARATOR + alternative,
+                (stat[0] + successes) + "," + (stat[1] + millis) + "," + (stat[2] + failures));
+        DIRTY.set(true);
+    }
+
+    private static Properties load() {
+        final Properties properties = new Properties();
+        if (Files.exists(CACHE_FILE)) {
+            try (InputStream in = Files.newInputStream(CACHE_FILE)) {
+                properties.load(in);
+            } catch (IOException | IllegalArgumentException e) {
+                System.out.println("Не удалось прочитать кэш стратегий, начинаем с нуля: " + e.getMessage());
+            }
+        }
+        return properties;
+    }
+
+    private static synchronized void save() {
+        if (!DIRTY.getAndSet(false)) {
+            return;
+        }
+        try {
+            if (CACHE_FILE.getParent() != null) {
+                Files.createDirectories(CACHE_FILE.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(CACHE_FILE)) {
+                STATS.store(out, "key|alternative=successes,totalMillis,failures");
+            }
+        } catch (IOException e) {
+            System.out.println("Не удалось сохранить кэш стратегий: " + e.getMessage());
+        }
+    }
+}
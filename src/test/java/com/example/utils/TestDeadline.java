@@ -0,0 +1,96 @@
+package com.example.utils;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Бюджет времени текущего теста.
+ * Тест получает общий бюджет (аннотация {@link TimeBudget} или свойство test.budget.seconds), и каждое ожидание
+ * page object берёт минимум из своего таймаута и оставшегося бюджета. Когда бюджет исчерпан, ожидания
+ * делают одну проверку без ожидания, а цепочки запасных вариантов прекращаются - упавший тест не держит устройство.
+ * Без начатого бюджета таймауты не меняются
+ */
+public class TestDeadline {
+
+    private static final ThreadLocal<long[]> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Начинает отсчёт бюджета теста от текущего момента
+     */
+    public static void start(final Duration budget) {
+        final long now = System.nanoTime();
+        CURRENT.set(new long[]{now, now + budget.toNanos()});
+    }
+
+    /**
+     * Меняет бюджет уже начатого теста, сохраняя момент начала. Если бюджет не начат, начинает его
+     */
+    public static void setBudget(final Duration budget) {
+        final long[] deadline = CURRENT.get();
+        if (deadline == null) {
+            start(budget);
+        } else {
+            deadline[1] = deadline[0] + budget.toNanos();
+        }
+    }
+
+    /**
+     * Выполняет действие, время которого не засчитывается в бюджет теста (получение устройства и запуск сессии):
+     * начало и конец бюджета сдвигаются на длительность действия
+     */
+    public static <T> T excluding(final Supplier<T> action) {
+        final long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            final long[] deadline = CURRENT.get();
+            if (deadline != null) {
+                final long elapsed = System.nanoTime() - start;
+                deadline[0] += elapsed;
+                deadline[1] += elapsed;
+            }
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Оставшийся бюджет; если бюджет не задан - Duration с максимальным значением
+     */
+    public static Duration remaining() {
+        final long[] deadline = CURRENT.get();
+        if (deadline == null) {
+            return Duration.ofMillis(Long.MAX_VALUE);
+        }
+        return Duration.ofNanos(Math.max(0, deadline[1] - System.nanoTime()));
+    }
+
+    /**
+     * Истёк ли бюджет теста
+     */
+    public static boolean isExpired() {
+        final long[] deadline = CURRENT.get();
+        return deadline != null && System.nanoTime() >= deadline[1];
+    }
+
+    /**
+     * Таймаут ожидания с учётом оставшегося бюджета
+     */
+    public static Duration clamp(final Duration timeout) {
+        final Duration remaining = remaining();
+        return timeout.compareTo(remaining) <= 0 ? timeout : remaining;
+    }
+
+    /**
+     * Таймаут ожидания в миллисекундах с учётом оставшегося бюджета
+     */
+    public static long clampMillis(final long timeoutMillis) {
+        return Math.min(timeoutMillis, remaining().toMillis());
+    }
+}
@@ -0,0 +1,592 @@
+package com.example.utils;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Выбор тестов по изменениям кода.
+ * По байткоду target/test-classes (ASM) строится граф вызовов между методами проекта с учётом переопределений,
+ * лямбд и статических инициализаторов. Изменённые строки из "git diff -U0 &lt;ревизия&gt;" сопоставляются
+ * с методами по таблице номеров строк. Тест затронут, если из него или из конфигурационных методов его класса
+ * (@BeforeMethod и т.п.) достижим изменённый метод.
+ * Анализ консервативен: изменение ресурсов, pom.xml, слушателей TestNG или строк вне известных методов
+ * (поля, константы) приводит к запуску всех тестов или всех тестов, затрагивающих класс
+ */
+public class TestImpactAnalyzer {
+
+    private static final String SOURCE_ROOT = "src/test/java/";
+    private static final Pattern HUNK = Pattern.compile("^@@ -\\d+(?:,\\d+)? \\+(\\d+)(?:,(\\d+))? @@");
+    private static final Set<String> CONFIGURATION_ANNOTATIONS = Set.of(
+            "Lorg/testng/annotations/BeforeMethod;", "Lorg/testng/annotations/AfterMethod;",
+            "Lorg/testng/annotations/BeforeClass;", "Lorg/testng/annotations/AfterClass;",
+            "Lorg/testng/annotations/BeforeTest;", "Lorg/testng/annotations/AfterTest;",
+            "Lorg/testng/annotations/BeforeSuite;", "Lorg/testng/annotations/AfterSuite;",
+            "Lorg/testng/annotations/BeforeGroups;", "Lorg/testng/annotations/AfterGroups;");
+    private static final String TEST_ANNOTATION = "Lorg/testng/annotations/Test;";
+    private static final String CLASS_INITIALIZER = "<clinit>";
+
+    private static volatile Set<String> cachedSelection;
+    private static volatile boolean computed;
+
+    private final Map<String, ClassInfo> classes = new HashMap<>();
+
+    /**
+     * Тесты ("полное.имя.Класса#метод"), затронутые изменениями с ревизии impact.since, или null,
+     * если выбор не задан или нужно запускать всё. Результат вычисляется один раз за прогон
+     */
+    public static Set<String> selectedTests() {
+        if (!computed) {
+            synchronized (TestImpactAnalyzer.class) {
+                if (!computed) {
+                    final String since = System.getProperty("impact.since");
+                    cachedSelection = since == null || since.isEmpty() ? null : select(since);
+                    computed = true;
+                }
+            }
+        }
+        return cachedSelection;
+    }
+
+    private static Set<String> select(final String since) {
+        final Path classesDir = Paths.get(System.getProperty("impact.classes", "target/test-classes"));
+        try {
+            final TestImpactAnalyzer analyzer = new TestImpactAnalyzer();
+            analyzer.load(classesDir);
+            final Set<String> affected = analyzer.affectedTests(gitDiff(since));
+            if (affected == null) {
+                System.out.println("Выбор тестов по изменениям с " + since + ": изменения затрагивают весь прогон");
+            } else {
+                System.out.println("Выбор тестов по изменениям с " + since + ": " + affected.size() + " из "
+                        + analyzer.allTests().size() + " " + new TreeSet<>(affected));
+            }
+            return affected;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Не удалось выбрать тесты по изменениям, запускаются все: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Читает все классы каталога
+     */
+    public void load(final Path classesDir) throws IOException {
+        try (Stream<Path> files = Files.walk(classesDir)) {
+            for (Path file : (Iterable<Path>) files.filter(path -> path.toString().endsWith(".class"))::iterator) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    new ClassReader(in).accept(new ClassScanner(), ClassReader.SKIP_FRAMES);
+                }
+            }
+        }
+    }
+
+    /**
+     * Все тестовые методы
+     */
+    public Set<String> allTests() {
+        final Set<String> tests = new HashSet<>();
+        for (ClassInfo info : classes.values()) {
+            for (String method : info.testMethods) {
+                tests.add(info.javaName() + "#" + method);
+            }
+        }
+        return tests;
+    }
+
+    /**
+     * Тесты, затронутые изменёнными строками
+     *
+     * @param changedLines изменённые строки по путям файлов относительно корня репозитория
+     * @return затронутые тесты или null, если нужно запускать все
+     */
+    public Set<String> affectedTests(final Map<String, Set<Integer>> changedLines) throws IOException {
+        final Set<String> changedMethods = new HashSet<>();
+        for (Map.Entry<String, Set<Integer>> entry : changedLines.entrySet()) {
+            final String file = entry.getKey();
+            if (!file.startsWith("src/") && !"pom.xml".equals(file)) {
+                continue;
+            }
+            if (!file.startsWith(SOURCE_ROOT) || !file.endsWith(".java")) {
+                return null;
+            }
+            final List<ClassInfo> fileClasses = classesOf(file);
+            if (fileClasses.isEmpty()) {
+                return null;
+            }
+            for (ClassInfo info : fileClasses) {
+                if (isTestNgListener(info)) {
+                    return null;
+                }
+            }
+            changedMethods.addAll(methodsAt(file, fileClasses, entry.getValue()));
+        }
+        final Set<String> affected = new HashSet<>();
+        for (ClassInfo info : classes.values()) {
+            if (info.testMethods.isEmpty()) {
+                continue;
+            }
+            final Set<String> configurationReach = reachable(configurationRoots(info));
+            final boolean configurationAffected = !Collections.disjoint(configurationReach, changedMethods);
+            for (String test : info.testMethods) {
+                if (configurationAffected
+                        || !Collections.disjoint(reachable(Set.of(info.name + "#" + test)), changedMethods)) {
+                    affected.add(info.javaName() + "#" + test);
+                }
+            }
+        }
+        return affected;
+    }
+
+    /**
+     * Изменённые строки из "git diff -U0 &lt;ревизия&gt;" (рабочее дерево против ревизии).
+     * git diff не видит неотслеживаемые файлы, поэтому файлы из "git ls-files --others --exclude-standard"
+     * добавляются целиком
+     */
+    public static Map<String, Set<Integer>> gitDiff(final String since) throws IOException {
+        final Map<String, Set<Integer>> changed = git(TestImpactAnalyzer::parseDiff,
+                "diff", "-U0", "--no-color", "--no-ext-diff", since, "--");
+        for (String file : git(TestImpactAnalyzer::parseFileList, "ls-files", "--others", "--exclude-standard")) {
+            changed.put(file, allLines(Paths.get(file)));
+        }
+        return changed;
+    }
+
+    private static <T> T git(final SneakyThrowUtil.ThrowingFunction<BufferedReader, T> parser, final String... arguments)
+            throws IOException {
+        final List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(List.of(arguments));
+        final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        final T result;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            result = SneakyThrowUtil.function(parser).apply(reader);
+        }
+        try {
+            if (!process.waitFor(60, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                process.destroyForcibly();
+                throw new IllegalStateException(String.join(" ", command) + " завершился с ошибкой");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return result;
+    }
+
+    private static List<String> parseFileList(final BufferedReader reader) throws IOException {
+        final List<String> files = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isEmpty()) {
+                files.add(line);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Все строки нового файла; пустой или нечитаемый файл - одна строка, чтобы файл всё равно считался изменённым
+     */
+    private static Set<Integer> allLines(final Path file) {
+        final Set<Integer> lines = new TreeSet<>();
+        lines.add(1);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            int number = 0;
+            while (reader.readLine() != null) {
+                lines.add(++number);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Бинарный или недоступный файл: достаточно первой строки
+        }
+        return lines;
+    }
+
+    /**
+     * Разбирает unified diff без контекста. Для удалённых строк отмечаются соседние строки нового файла;
+     * удалённые файлы пропускаются - их вызовы изменены в других файлах
+     */
+    public static Map<String, Set<Integer>> parseDiff(final BufferedReader diff) throws IOException {
+        final Map<String, Set<Integer>> changed = new HashMap<>();
+        String file = null;
+        String line;
+        while ((line = diff.readLine()) != null) {
+            if (line.startsWith("+++ ")) {
+                final String path = line.substring(4).trim();
+                file = "/dev/null".equals(path) ? null : path.substring(path.indexOf('/') + 1);
+                continue;
+            }
+            final Matcher hunk = HUNK.matcher(line);
+            if (file == null || !hunk.find()) {
+                continue;
+            }
+            final int start = Integer.parseInt(hunk.group(1));
+            final int count = hunk.group(2) == null ? 1 : Integer.parseInt(hunk.group(2));
+            final Set<Integer> lines = changed.computeIfAbsent(file, name -> new TreeSet<>());
+            if (count == 0) {
+                lines.add(start);
+                lines.add(start + 1);
+            }
+            for (int i = start; i < start + count; i++) {
+                lines.add(i);
+            }
+        }
+        return changed;
+    }
+
+    private List<ClassInfo> classesOf(final String file) {
+        final List<ClassInfo> result = new ArrayList<>();
+        for (ClassInfo info : classes.values()) {
+            if (file.equals(info.sourcePath())) {
+                result.add(info);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Методы ("внутреннее/имя/Класса#метод"), которым принадлежат строки файла
+     */
+    public Set<String> methodsAt(final String file, final Set<Integer> lines) throws IOException {
+        return methodsAt(file, classesOf(file), lines);
+    }
+
+    /**
+     * Строка тела метода относится ко всем методам, диапазон строк которых её содержит: перегрузки объединены
+     * по имени, а тела лямбд и вложенных классов лежат внутри объемлющего метода. Комментарий, аннотация
+     * или сигнатура между методами - к следующему методу; остальные строки вне методов (поля, константы)
+     * считаются изменением всех методов класса
+     */
+    private Set<String> methodsAt(final String file, final List<ClassInfo> fileClasses, final Set<Integer> lines)
+            throws IOException {
+        final List<String> source = Files.exists(Paths.get(file)) ? Files.readAllLines(Paths.get(file)) : List.of();
+        final Set<String> result = new HashSet<>();
+        for (int line : lines) {
+            final List<MethodInfo> owners = new ArrayList<>();
+            MethodInfo next = null;
+            for (ClassInfo info : fileClasses) {
+                for (MethodInfo method : info.methods.values()) {
+                    if (method.contains(line)) {
+                        owners.add(method);
+                    } else if (method.firstLine > line && (next == null || method.firstLine < next.firstLine)) {
+                        next = method;
+                    }
+                }
+            }
+            if (!owners.isEmpty()) {
+                for (MethodInfo owner : owners) {
+                    result.add(owner.key);
+                }
+            } else if (next != null && line <= source.size() && isDeclarationLine(source.get(line - 1))) {
+                result.add(next.key);
+            } else {
+                for (ClassInfo info : fileClasses) {
+                    for (MethodInfo method : info.methods.values()) {
+                        result.add(method.key);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean isDeclarationLine(final String line) {
+        final String trimmed = line.trim();
+        return trimmed.isEmpty() || trimmed.startsWith("*") || trimmed.startsWith("/*") || trimmed.startsWith("//")
+                || trimmed.startsWith("@") || trimmed.startsWith("}")
+                || (trimmed.contains("(") && trimmed.endsWith("{") && !trimmed.contains("="));
+    }
+
+    private boolean isTestNgListener(final ClassInfo info) {
+        final Deque<String> pending = new ArrayDeque<>();
+        pending.add(info.name);
+        final Set<String> seen = new HashSet<>();
+        while (!pending.isEmpty()) {
+            final String name = pending.poll();
+            if (!seen.add(name)) {
+                continue;
+            }
+            if (name.startsWith("org/testng/") && name.endsWith("Listener")) {
+                return true;
+            }
+            final ClassInfo type = classes.get(name);
+            if (type != null) {
+                if (type.superName != null) {
+                    pending.add(type.superName);
+                }
+                pending.addAll(type.interfaces);
+            }
+        }
+        return false;
+    }
+
+    private Set<String> configurationRoots(final ClassInfo testClass) {
+        final Set<String> roots = new HashSet<>();
+        for (ClassInfo info = testClass; info != null; info = classes.get(info.superName)) {
+            for (String method : info.configurationMethods) {
+                roots.add(info.name + "#" + method);
+            }
+            roots.add(info.name + "#<init>");
+            roots.add(info.name + "#" + CLASS_INITIALIZER);
+        }
+        return roots;
+    }
+
+    /**
+     * Методы, достижимые из корней
+     */
+    private Set<String> reachable(final Set<String> roots) {
+        final Set<String> visited = new HashSet<>();
+        final Deque<String> pending = new ArrayDeque<>(roots);
+        while (!pending.isEmpty()) {
+            final String key = pending.poll();
+            if (!visited.add(key)) {
+                continue;
+            }
+            final int separator = key.indexOf('#');
+            final ClassInfo info = classes.get(key.substring(0, separator));
+            if (info == null) {
+                continue;
+            }
+            pending.add(info.name + "#" + CLASS_INITIALIZER);
+            final String methodName = key.substring(separator + 1);
+            if (info.isAnonymous() || ("<init>".equals(methodName) && hasExternalSupertype(info))) {
+                // Созданный объект библиотечного типа (слушатель, ExpectedCondition и т.п.) вызывает библиотека,
+                // а не код проекта, поэтому достижимыми считаются все его методы
+                for (MethodInfo method : info.methods.values()) {
+                    pending.add(method.key);
+                }
+            }
+            final MethodInfo method = info.methods.get(methodName);
+            if (method == null) {
+                continue;
+            }
+            for (String call : method.calls) {
+                pending.addAll(resolve(call));
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Вызов владелец#метод с учётом наследования: объявление в самом классе или предках и переопределения в наследниках
+     */
+    private Set<String> resolve(final String call) {
+        final int separator = call.indexOf('#');
+        final String owner = call.substring(0, separator);
+        final String method = call.substring(separator + 1);
+        final Set<String> targets = new HashSet<>();
+        targets.add(call);
+        for (ClassInfo info = classes.get(owner); info != null; info = classes.get(info.superName)) {
+            if (info.methods.containsKey(method)) {
+                targets.add(info.name + "#" + method);
+            }
+        }
+        if (!method.startsWith("<")) {
+            for (ClassInfo info : classes.values()) {
+                if (info.methods.containsKey(method) && isSubtype(info.name, owner)) {
+                    targets.add(info.name + "#" + method);
+                }
+            }
+        }
+        return targets;
+    }
+
+    private boolean hasExternalSupertype(final ClassInfo info) {
+        if (info.superName != null && !"java/lang/Object".equals(info.superName) && !classes.containsKey(info.superName)) {
+            return true;
+        }
+        for (String parent : info.interfaces) {
+            if (!classes.containsKey(parent)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isSubtype(final String name, final String ancestor) {
+        final ClassInfo info = classes.get(name);
+        if (info == null) {
+            return false;
+        }
+        if (ancestor.equals(info.superName) || info.interfaces.contains(ancestor)) {
+            return true;
+        }
+        for (String parent : info.interfaces) {
+            if (isSubtype(parent, ancestor)) {
+                return true;
+            }
+        }
+        return info.superName != null && isSubtype(info.superName, ancestor);
+    }
+
+    /**
+     * Метод проекта: вызовы (владелец#имя, без учёта перегрузок) и строки исходника
+     */
+    private static final class MethodInfo {
+        private final String key;
+        private final boolean initializer;
+        private final Set<String> calls = new HashSet<>();
+        private final Set<Integer> lines = new HashSet<>();
+        private int firstLine = Integer.MAX_VALUE;
+        private int lastLine;
+
+        private MethodInfo(final String key, final boolean initializer) {
+            this.key = key;
+            this.initializer = initializer;
+        }
+
+        private void addLine(final int line) {
+            lines.add(line);
+            firstLine = Math.min(firstLine, line);
+            lastLine = Math.max(lastLine, line);
+        }
+
+        /**
+         * Конструкторы и статические инициализаторы собирают строки инициализаторов полей по всему классу,
+         * поэтому для них учитываются только собственные строки, а для обычных методов - весь диапазон тела
+         */
+        private boolean contains(final int line) {
+            return initializer ? lines.contains(line) : line >= firstLine && line <= lastLine + 1;
+        }
+    }
+
+    private static final class ClassInfo {
+        private final String name;
+        private final String superName;
+        private final List<String> interfaces;
+        private final Map<String, MethodInfo> methods = new HashMap<>();
+        private final Set<String> testMethods = new HashSet<>();
+        private final Set<String> configurationMethods = new HashSet<>();
+        private String sourceFile;
+
+        private ClassInfo(final String name, final String superName, final String[] interfaces) {
+            this.name = name;
+            this.superName = superName;
+            this.interfaces = interfaces == null ? List.of() : List.of(interfaces);
+        }
+
+        private String javaName() {
+            return name.replace('/', '.');
+        }
+
+        private String sourcePath() {
+            if (sourceFile == null) {
+                return null;
+            }
+            final int packageEnd = name.lastIndexOf('/');
+            return SOURCE_ROOT + (packageEnd < 0 ? "" : name.substring(0, packageEnd + 1)) + sourceFile;
+        }
+
+        private boolean isAnonymous() {
+            final int nested = name.lastIndexOf('$');
+            return nested >= 0 && nested + 1 < name.length() && Character.isDigit(name.charAt(nested + 1));
+        }
+    }
+
+    private final class ClassScanner extends ClassVisitor {
+        private ClassInfo info;
+
+        private ClassScanner() {
+            super(Opcodes.ASM9);
+        }
+
+        @Override
+        public void visit(final int version, final int access, final String name, final String signature,
+                          final String superName, final String[] interfaces) {
+            info = new ClassInfo(name, superName, interfaces);
+            classes.put(name, info);
+        }
+
+        @Override
+        public void visitSource(final String source, final String debug) {
+            info.sourceFile = source;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(final int access, final String name, final String descriptor,
+                                         final String signature, final String[] exceptions) {
+            final MethodInfo method = info.methods.computeIfAbsent(name,
+                    methodName -> new MethodInfo(info.name + "#" + methodName, methodName.startsWith("<")));
+            return new MethodScanner(info, name, method);
+        }
+    }
+
+    private static final class MethodScanner extends MethodVisitor {
+        private final ClassInfo info;
+        private final String name;
+        private final MethodInfo method;
+
+        private MethodScanner(final ClassInfo info, final String name, final MethodInfo method) {
+            super(Opcodes.ASM9);
+            this.info = info;
+            this.name = name;
+            this.method = method;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(final String descriptor, final boolean visible) {
+            if (TEST_ANNOTATION.equals(descriptor)) {
+                info.testMethods.add(name);
+            } else if (CONFIGURATION_ANNOTATIONS.contains(descriptor)) {
+                info.configurationMethods.add(name);
+            }
+            return null;
+        }
+
+        @Override
+        public void visitMethodInsn(final int opcode, final String owner, final String methodName,
+                                    final String descriptor, final boolean isInterface) {
+            method.calls.add(owner + "#" + methodName);
+        }
+
+        @Override
+        public void visitFieldInsn(final int opcode, final String owner, final String fieldName, final String descriptor) {
+            if (!owner.equals(info.name)) {
+                method.calls.add(owner + "#" + CLASS_INITIALIZER);
+            }
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(final String methodName, final String descriptor, final Handle bootstrap,
+                                           final Object... arguments) {
+            for (Object argument : arguments) {
+                if (argument instanceof Handle) {
+                    final Handle handle = (Handle) argument;
+                    method.calls.add(handle.getOwner() + "#" + handle.getName());
+                }
+            }
+        }
+
+        @Override
+        public void visitLineNumber(final int line, final Label start) {
+            method.addLine(line);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.utils;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Разбивка времени теста по категориям для отчёта о производительности.
+ * Учёт ведётся в потоке теста: участки вкладываются друг в друга, и каждому участку засчитывается
+ * только собственное время - команды драйвера внутри ожидания не засчитываются самому ожиданию
+ */
+public class TestTimings {
+
+    public enum Category { DRIVER_STARTUP, EXPLICIT_WAIT, SLEEP, DRIVER_COMMAND }
+
+    private static final int MAX_DEPTH = 32;
+    private static final Category[] CATEGORIES = Category.values();
+    private static final ThreadLocal<TestTimings> CURRENT = ThreadLocal.withInitial(TestTimings::new);
+
+    private final long[] totals = new long[CATEGORIES.length];
+    private final Category[] openCategories = new Category[MAX_DEPTH];
+    private final long[] openStarts = new long[MAX_DEPTH];
+    private final long[] openChildTimes = new long[MAX_DEPTH];
+    private int depth;
+    private long startedAt = System.nanoTime();
+
+    /**
+     * Начинает учёт нового теста в текущем потоке
+     */
+    public static void startTest() {
+        final TestTimings timings = CURRENT.get();
+        Arrays.fill(timings.totals, 0);
+        timings.depth = 0;
+        timings.startedAt = System.nanoTime();
+    }
+
+    /**
+     * Начинает участок указанной категории. Каждому вызову должен соответствовать {@link #end()}
+     */
+    public static void begin(final Category category) {
+        final TestTimings timings = CURRENT.get();
+        if (timings.depth < MAX_DEPTH) {
+            timings.openCategories[timings.depth] = category;
+            timings.openStarts[timings.depth] = System.nanoTime();
+            timings.openChildTimes[timings.depth] = 0;
+        }
+        timings.depth++;
+    }
+
+    /**
+     * Завершает последний начатый участок
+     */
+    public static void end() {
+        final TestTimings timings = CURRENT.get();
+        if (timings.depth == 0) {
+            return;
+        }
+        final int index = --timings.depth;
+        if (index >= MAX_DEPTH) {
+            return;
+        }
+        final long elapsed = System.nanoTime() - timings.openStarts[index];
+        timings.totals[timings.openCategories[index].ordinal()] += elapsed - timings.openChildTimes[index];
+        if (index > 0) {
+            timings.openChildTimes[index - 1] += elapsed;
+        }
+    }
+
+    /**
+     * Выполняет действие как участок указанной категории
+     */
+    public static <T> T measure(final Category category, final Supplier<T> action) {
+        begin(category);
+        try {
+            return action.get();
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Время с начала теста, мс
+     */
+    public static long getWallMillis() {
+        return (System.nanoTime() - CURRENT.get().startedAt) / 1_000_000L;
+    }
+
+    /**
+     * Накопленное время по категориям с начала теста, мс
+     */
+    public static Map<Category, Long> getMillisByCategory() {
+        final TestTimings timings = CURRENT.get();
+        final Map<Category, Long> result = new EnumMap<>(Category.class);
+        for (Category category : CATEGORIES) {
+            result.put(category, timings.totals[category.ordinal()] / 1_000_000L);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.utils;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Общий бюджет времени теста вместе с @BeforeMethod, см. {@link TestDeadline}
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface TimeBudget {
+
+    /**
+     * Бюджет в секундах
+     */
+    long seconds();
+}
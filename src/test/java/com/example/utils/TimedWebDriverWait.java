@@ -0,0 +1,43 @@
+package com.example.utils;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * WebDriverWait, время которого учитывается в отчёте о производительности как явное ожидание.
+ * Таймаут каждого вызова until, как и неявное ожидание драйвера, ограничивается оставшимся бюджетом теста ({@link TestDeadline}).
+ * Каждый повторный опрос условия начинает новую эпоху {@link ElementCachingDecorator} - ожидание видит свежий экран
+ */
+public class TimedWebDriverWait extends WebDriverWait {
+
+    private final WebDriver driver;
+    private final Duration timeout;
+
+    public TimedWebDriverWait(final WebDriver driver, final Duration timeout) {
+        super(driver, timeout);
+        this.driver = driver;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public <V> V until(final Function<? super WebDriver, V> isTrue) {
+        withTimeout(TestDeadline.clamp(timeout));
+        LocatorProbe.applyImplicitWait(driver);
+        TestTimings.begin(TestTimings.Category.EXPLICIT_WAIT);
+        try {
+            final boolean[] firstPoll = {true};
+            return super.until(driver -> {
+                if (!firstPoll[0]) {
+                    ElementCachingDecorator.newEpoch();
+                }
+                firstPoll[0] = false;
+                return isTrue.apply(driver);
+            });
+        } finally {
+            TestTimings.end();
+        }
+    }
+}
@@ -1,46 +1,321 @@
 package com.example.utils;
 
-import io.github.bonigarcia.wdm.WebDriverManager;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
 
-import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Пул браузерных сессий для параллельного запуска тестов.
+ * Сессия выдаётся потоку на время теста (lease), после теста сбрасывается и возвращается в пул,
+ * а не закрывается. Размер пула задаётся свойством driver.pool.size (по умолчанию - число ядер).
+ * С warm.pool.size &gt; 0 пул заранее запускает браузеры в фоне и дозапускает их взамен закрытых,
+ * так что тест получает уже работающий браузер
+ */
 public class WebDriverManagerUtil {
-    private static WebDriver driver;
+    private static final int POOL_SIZE = Integer.getInteger("driver.pool.size", Runtime.getRuntime().availableProcessors());
 
+    private static final Semaphore CAPACITY = new Semaphore(POOL_SIZE, true);
+    private static final BlockingDeque<WebDriver> IDLE_DRIVERS = new LinkedBlockingDeque<>();
+    private static final Set<WebDriver> ALL_DRIVERS = ConcurrentHashMap.newKeySet();
+    private static final ThreadLocal<WebDriver> LEASED_DRIVER = new ThreadLocal<>();
+    private static final ThreadLocal<WebDriver> LAST_USED_DRIVER = new ThreadLocal<>();
+
+    private static final int WARM_POOL_SIZE = Math.min(POOL_SIZE, Integer.getInteger("warm.pool.size", 0));
+    private static final AtomicInteger HITS = new AtomicInteger();
+    private static final AtomicInteger MISSES = new AtomicInteger();
+    private static final AtomicInteger FAILED_LAUNCHES = new AtomicInteger();
+    private static final LatencyHistogram LAUNCH_TIMES = new LatencyHistogram();
+    private static volatile ExecutorService warmUpExecutor;
+
+    /**
+     * Возвращает сессию, выданную текущему потоку. При первом обращении в тесте
+     * берёт свободную сессию из пула (предпочтительно ту, что поток использовал ранее) или создаёт новую.
+     * Ожидание и запуск сессии не засчитываются в бюджет теста
+     */
     public static WebDriver getDriver() {
+        WebDriver driver = LEASED_DRIVER.get();
+        if (driver == null) {
+            driver = TestDeadline.excluding(WebDriverManagerUtil::lease);
+            LEASED_DRIVER.set(driver);
+        }
+        LocatorProbe.applyImplicitWait(driver);
+        return driver;
+    }
+
+    /**
+     * Сессия, уже выданная текущему потоку, или null. В отличие от {@link #getDriver()} не берёт сессию из пула
+     */
+    public static WebDriver getLeasedDriver() {
+        return LEASED_DRIVER.get();
+    }
+
+    /**
+     * Запускает в фоне warm.pool.size браузеров, если пул ещё не прогрет. Вызывается в начале прогона
+     */
+    public static synchronized void warmUp() {
+        if (WARM_POOL_SIZE <= 0 || warmUpExecutor != null) {
+            return;
+        }
+        warmUpExecutor = Executors.newFixedThreadPool(WARM_POOL_SIZE, runnable -> {
+            final Thread thread = new Thread(runnable, "browser-warm-up");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < WARM_POOL_SIZE; i++) {
+            scheduleWarmLaunch();
+        }
+        System.out.println("Прогрев пула браузеров: запускается " + WARM_POOL_SIZE + " сессий");
+    }
+
+    /**
+     * Возвращает сессию текущего потока в пул.
+     * Сессия сбрасывается (cookies, storage, навигация); если сброс не удался, сессия считается сломанной и закрывается
+     */
+    public static void releaseDriver() {
+        final WebDriver driver = LEASED_DRIVER.get();
         if (driver == null) {
-            String browser = System.getProperty("browser", "chrome");
-            driver = createDriver(browser);
+            return;
+        }
+        LEASED_DRIVER.remove();
+        if (resetSession(driver)) {
+            LAST_USED_DRIVER.set(driver);
+            IDLE_DRIVERS.offerFirst(driver);
+        } else {
+            evict(driver);
+        }
+    }
+
+    /**
+     * Разрешает в текущем тесте загрузку ресурсов, которые облегчённый профиль блокирует по умолчанию.
+     * При возврате сессии в пул блокировка восстанавливается. Поддерживается только в chrome (CDP),
+     * в Firefox вызов записывается в лог и ничего не меняет
+     *
+     * @param patterns шаблоны из {@link LeanBrowserProfile#BLOCKED_URL_PATTERNS}
+     */
+    public static void allowResources(final String... patterns) {
+        if (LeanBrowserProfile.isEnabled()) {
+            LeanBrowserProfile.blockResources(getDriver(), Arrays.asList(patterns));
+        }
+    }
+
+    /**
+     * Закрывает сессию текущего потока без возврата в пул
+     */
+    public static void quitDriver() {
+        final WebDriver driver = LEASED_DRIVER.get();
+        if (driver != null) {
+            LEASED_DRIVER.remove();
+            evict(driver);
+        }
+    }
+
+    /**
+     * Закрывает все сессии пула. Вызывается в конце прогона
+     */
+    public static void quitAllDrivers() {
+        final ExecutorService executor = warmUpExecutor;
+        warmUpExecutor = null;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        for (WebDriver driver : new ArrayList<>(ALL_DRIVERS)) {
+            IDLE_DRIVERS.remove(driver);
+            evict(driver);
+        }
+        LEASED_DRIVER.remove();
+        LAST_USED_DRIVER.remove();
+        printPoolStatistics();
+    }
+
+    private static void printPoolStatistics() {
+        if (HITS.get() + MISSES.get() == 0) {
+            return;
+        }
+        System.out.println(String.format("Пул браузеров: готовая сессия %d раз, ожидание запуска %d раз; "
+                        + "запусков %d (неудачных %d), время запуска p50 %d мс, p90 %d мс, max %d мс",
+                HITS.get(), MISSES.get(), LAUNCH_TIMES.getCount(), FAILED_LAUNCHES.get(),
+                LAUNCH_TIMES.percentile(0.5) / 1000, LAUNCH_TIMES.percentile(0.9) / 1000, LAUNCH_TIMES.getMaxMicros() / 1000));
+    }
+
+    private static WebDriver lease() {
+        final WebDriver previous = LAST_USED_DRIVER.get();
+        if (previous != null && IDLE_DRIVERS.remove(previous)) {
+            HITS.incrementAndGet();
+            return previous;
+        }
+        while (true) {
+            final WebDriver idle = IDLE_DRIVERS.pollFirst();
+            if (idle != null) {
+                HITS.incrementAndGet();
+                return idle;
+            }
+            if (CAPACITY.tryAcquire()) {
+                MISSES.incrementAndGet();
+                try {
+                    return openSession();
+                } catch (RuntimeException e) {
+                    CAPACITY.release();
+                    throw e;
+                }
+            }
+            final WebDriver released = SneakyThrowUtil.sneakyGet(() -> IDLE_DRIVERS.pollFirst(1, TimeUnit.SECONDS));
+            if (released != null) {
+                MISSES.incrementAndGet();
+                return released;
+            }
+        }
+    }
+
+    /**
+     * Фоновый запуск браузера в пул прогрева. Если свободной ёмкости нет, запуск пропускается
+     */
+    private static void scheduleWarmLaunch() {
+        final ExecutorService executor = warmUpExecutor;
+        if (executor == null) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                if (!CAPACITY.tryAcquire()) {
+                    return;
+                }
+                final WebDriver driver;
+                try {
+                    driver = openSession();
+                } catch (RuntimeException e) {
+                    CAPACITY.release();
+                    System.out.println("Не удалось заранее запустить браузер: " + e.getMessage());
+                    return;
+                }
+                if (warmUpExecutor == null) {
+                    evict(driver);
+                } else {
+                    IDLE_DRIVERS.offerLast(driver);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // пул уже остановлен в конце прогона
+        }
+    }
+
+    private static WebDriver openSession() {
+        final long start = System.nanoTime();
+        TestTimings.begin(TestTimings.Category.DRIVER_STARTUP);
+        try {
+            final WebDriver driver = startSession();
+            LAUNCH_TIMES.record((System.nanoTime() - start) / 1000);
+            return driver;
+        } catch (RuntimeException e) {
+            FAILED_LAUNCHES.incrementAndGet();
+            throw e;
+        } finally {
+            TestTimings.end();
+        }
+    }
+
+    private static WebDriver startSession() {
+        final String browser = System.getProperty("browser", "chrome");
+        final WebDriver driver = ElementCachingDecorator.wrap(CommandMetrics.instrument(createDriver(browser)));
+        if (LeanBrowserProfile.isEnabled()) {
+            LeanBrowserProfile.blockResources(driver);
+        } else {
             driver.manage().window().maximize();
-            driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(10));
         }
+        LocatorProbe.applyImplicitWait(driver);
+        ALL_DRIVERS.add(driver);
         return driver;
     }
 
+    /**
+     * Сбрасывает состояние сессии между тестами. Заодно служит проверкой работоспособности:
+     * любая ошибка драйвера означает, что сессию нужно выбросить
+     */
+    private static boolean resetSession(final WebDriver driver) {
+        try {
+            final String currentUrl = driver.getCurrentUrl();
+            if (currentUrl != null && currentUrl.startsWith("http")) {
+                driver.manage().deleteAllCookies();
+                if (driver instanceof JavascriptExecutor) {
+                    ((JavascriptExecutor) driver).executeScript("window.localStorage.clear(); window.sessionStorage.clear();");
+                }
+            }
+            final List<String> handles = new ArrayList<>(driver.getWindowHandles());
+            if (handles.isEmpty()) {
+                System.out.println("Сессия не прошла проверку и будет закрыта: нет открытых окон");
+                return false;
+            }
+            for (int i = 1; i < handles.size(); i++) {
+                driver.switchTo().window(handles.get(i)).close();
+            }
+            driver.switchTo().window(handles.get(0));
+            driver.get("about:blank");
+            if (LeanBrowserProfile.isEnabled()) {
+                LeanBrowserProfile.blockResources(driver);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            System.out.println("Сессия не прошла проверку и будет закрыта: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void evict(final WebDriver driver) {
+        if (!ALL_DRIVERS.remove(driver)) {
+            return;
+        }
+        try {
+            driver.quit();
+        } catch (WebDriverException e) {
+            System.out.println("Не удалось корректно закрыть сессию: " + e.getMessage());
+        } finally {
+            CAPACITY.release();
+            scheduleWarmLaunch();
+        }
+    }
+
     private static WebDriver createDriver(String browser) {
         try {
             switch (browser.toLowerCase()) {
                 case "chrome":
-                    WebDriverManager.chromedriver().setup();
+                    DriverBinaryCache.setup("chrome");
                     ChromeOptions chromeOptions = new ChromeOptions();
                     chromeOptions.addArguments("--disable-blink-features=AutomationControlled");
                     String chromeBinary = System.getProperty("chrome.binary");
                     if (chromeBinary != null && !chromeBinary.isEmpty()) {
                         chromeOptions.setBinary(chromeBinary);
                     }
+                    if (LeanBrowserProfile.isEnabled()) {
+                        LeanBrowserProfile.apply(chromeOptions);
+                    }
                     return new ChromeDriver(chromeOptions);
                 case "firefox":
-                    WebDriverManager.firefoxdriver().setup();
+                    DriverBinaryCache.setup("firefox");
                     FirefoxOptions firefoxOptions = new FirefoxOptions();
                     String firefoxBinary = System.getProperty("firefox.binary");
                     if (firefoxBinary != null && !firefoxBinary.isEmpty()) {
                         firefoxOptions.setBinary(firefoxBinary);
                     }
+                    if (LeanBrowserProfile.isEnabled()) {
+                        LeanBrowserProfile.apply(firefoxOptions);
+                    }
                     return new FirefoxDriver(firefoxOptions);
                 default:
                     throw new IllegalArgumentException("Unsupported browser: " + browser);
@@ -50,11 +325,4 @@ public class WebDriverManagerUtil {
             throw new RuntimeException(e);
         }
     }
-
-    public static void quitDriver() {
-        if (driver != null) {
-            driver.quit();
-            driver = null;
-        }
-    }
 }
@@ -0,0 +1,331 @@
+package com.example.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Локальная замена ru.wikipedia.org для веб-тестов.
+ * Режим задаётся свойством wiki.server.mode:
+ * record - сервер проксирует запросы на настоящий сайт и записывает ответы в архив (wiki.archive);
+ * replay - сервер отдаёт записанные ответы с искусственной задержкой wiki.replay.latency.ms;
+ * synthetic - сервер сам генерирует минимальные страницы поиска и статей (для нагрузочного режима без архива);
+ * off (по умолчанию) - тесты ходят на настоящий сайт.
+ * Ссылки на ресурсы с других хостов Wikimedia (картинки и логотипы с upload.wikimedia.org и т.п., хосты задаются
+ * регулярным выражением wiki.asset.hosts) при записи переписываются на локальный путь /__host/&lt;хост&gt;/...,
+ * поэтому эти ресурсы тоже записываются в архив, а при воспроизведении браузер не ходит в интернет.
+ * Архив - zip-файл с индексом и сжатыми телами ответов
+ */
+public class WikiStandInServer {
+
+    public enum Mode { OFF, RECORD, REPLAY, SYNTHETIC }
+
+    private static final String DEFAULT_BASE_URL = "https://ru.wikipedia.org/";
+    private static final String INDEX_ENTRY = "index.tsv";
+    private static final String BODY_ENTRY_PREFIX = "bodies/";
+    private static final String ASSET_HOST_PREFIX = "/__host/";
+    private static final Pattern ASSET_URL = Pattern.compile("(?:https?:)?//("
+            + System.getProperty("wiki.asset.hosts", "[a-z0-9.-]+\\.(?:wikimedia|wikipedia|wikidata|mediawiki)\\.org") + ")(?=[/\"'\\s)?#]|$)");
+
+    private static volatile WikiStandInServer instance;
+
+    private final Mode mode;
+    private final Path archive;
+    private final String upstreamUrl;
+    private final long latencyMillis;
+    private final Map<String, RecordedResponse> responses = new ConcurrentHashMap<>();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        final Thread thread = new Thread(runnable, "wiki-stand-in");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final HttpClient upstream;
+
+    private WikiStandInServer(final Mode mode, final Path archive, final String upstreamUrl,
+                              final long latencyMillis, final int port) throws IOException {
+        this.mode = mode;
+        this.archive = archive;
+        this.upstreamUrl = upstreamUrl.endsWith("/") ? upstreamUrl.substring(0, upstreamUrl.length() - 1) : upstreamUrl;
+        this.latencyMillis = latencyMillis;
+        this.upstream = mode == Mode.RECORD
+                ? HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).connectTimeout(Duration.ofSeconds(15)).build()
+                : null;
+        if (mode == Mode.REPLAY) {
+            load();
+        }
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    /**
+     * Запускает сервер, если это задано свойством wiki.server.mode. Повторный вызов ничего не делает
+     */
+    public static synchronized void startIfConfigured() {
+        if (instance != null) {
+            return;
+        }
+        final Mode mode = Mode.valueOf(System.getProperty("wiki.server.mode", "off").toUpperCase());
+        if (mode == Mode.OFF) {
+            return;
+        }
+        final Path archive = Paths.get(System.getProperty("wiki.archive", "src/test/resources/wikipedia-archive.zip"));
+        final WikiStandInServer server = SneakyThrowUtil.sneakyGet(() -> new WikiStandInServer(mode, archive,
+                System.getProperty("wiki.upstream", DEFAULT_BASE_URL),
+                Long.getLong("wiki.replay.latency.ms", 0L),
+                Integer.getInteger("wiki.server.port", 0)));
+        server.server.start();
+        instance = server;
+        System.out.println("Локальный сервер Wikipedia запущен в режиме " + mode + ": " + getBaseUrl());
+    }
+
+    /**
+     * Останавливает сервер; в режиме записи сохраняет архив
+     */
+    public static synchronized void stopIfRunning() {
+        final WikiStandInServer server = instance;
+        if (server == null) {
+            return;
+        }
+        instance = null;
+        server.server.stop(0);
+        server.executor.shutdownNow();
+        if (server.mode == Mode.RECORD) {
+            SneakyThrowUtil.sneakyRun(server::save);
+            System.out.println("Записано ответов: " + server.responses.size() + " в " + server.archive);
+        }
+    }
+
+    /**
+     * Базовый URL сайта с завершающим слэшем: локальный сервер, если он запущен,
+     * иначе свойство wiki.baseUrl или https://ru.wikipedia.org/
+     */
+    public static String getBaseUrl() {
+        final WikiStandInServer server = instance;
+        if (server != null) {
+            return "http://" + server.server.getAddress().getHostString() + ":" + server.server.getAddress().getPort() + "/";
+        }
+        final String baseUrl = System.getProperty("wiki.baseUrl", DEFAULT_BASE_URL);
+        return baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            final String key = exchange.getRequestMethod() + " " + exchange.getRequestURI().toString();
+            RecordedResponse response = responses.get(key);
+            if (response == null && mode == Mode.RECORD) {
+                response = fetch(exchange);
+                responses.putIfAbsent(key, response);
+            }
+            if (mode == Mode.SYNTHETIC) {
+                response = synthesize(exchange.getRequestURI());
+            }
+            if (response == null) {
+                System.out.println("Нет записанного ответа для " + key);
+                response = new RecordedResponse(404, "text/plain; charset=UTF-8", null,
+                        ("Not recorded: " + key).getBytes(StandardCharsets.UTF_8));
+            }
+            if (mode != Mode.RECORD && latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            send(exchange, response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private RecordedResponse fetch(final HttpExchange exchange) throws IOException, InterruptedException {
+        final String requestUri = exchange.getRequestURI().toString();
+        final String assetHost = assetHostOf(requestUri);
+        final URI target = assetHost == null
+                ? URI.create(upstreamUrl + requestUri)
+                : URI.create("https://" + requestUri.substring(ASSET_HOST_PREFIX.length()));
+        final HttpRequest.Builder request = HttpRequest.newBuilder(target)
+                .timeout(Duration.ofSeconds(30))
+                .method(exchange.getRequestMethod(), HttpRequest.BodyPublishers.noBody());
+        for (String header : new String[]{"Accept", "Accept-Language", "User-Agent"}) {
+            final String value = exchange.getRequestHeaders().getFirst(header);
+            if (value != null) {
+                request.header(header, value);
+            }
+        }
+        final HttpResponse<byte[]> response = upstream.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        final String contentType = response.headers().firstValue("Content-Type").orElse("application/octet-stream");
+        final String location = response.headers().firstValue("Location")
+                .map(value -> assetHost != null && value.startsWith("/") && !value.startsWith("//")
+                        ? ASSET_HOST_PREFIX + assetHost + value
+                        : localize(value))
+                .orElse(null);
+        byte[] body = response.body();
+        if (contentType.startsWith("text/") || contentType.contains("javascript") || contentType.contains("json")) {
+            body = localize(new String(body, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+        }
+        return new RecordedResponse(response.statusCode(), contentType, location, body);
+    }
+
+    /**
+     * Сгенерированный ответ: поиск перенаправляет на статью с заголовком-запросом,
+     * Special:Random - на одну из 1000 статей, любая статья - страница с логотипом, полем поиска и заголовком
+     */
+    private static RecordedResponse synthesize(final URI uri) {
+        final String path = uri.getRawPath();
+        final String query = uri.getRawQuery() == null ? "" : uri.getRawQuery();
+        if ("/w/index.php".equals(path) && query.startsWith("search=")) {
+            final String title = URLDecoder.decode(query.substring("search=".length()).split("&")[0], StandardCharsets.UTF_8);
+            return redirect("/wiki/" + URLEncoder.encode(title.trim().replace(' ', '_'), StandardCharsets.UTF_8));
+        }
+        if ("/wiki/Special:Random".equals(path)) {
+            return redirect("/wiki/" + URLEncoder.encode("Статья_" + ThreadLocalRandom.current().nextInt(1000), StandardCharsets.UTF_8));
+        }
+        if (path.startsWith("/wiki/") && path.length() > "/wiki/".length()) {
+            final String title = URLDecoder.decode(path.substring("/wiki/".length()), StandardCharsets.UTF_8).replace('_', ' ');
+            final String escaped = title.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+            final String html = "<!DOCTYPE html><html><head><meta charset=\"UTF-8\"><title>" + escaped + "</title></head><body>"
+                    + "<div id=\"p-logo\"><a href=\"/wiki/Заглавная_страница\">Wikipedia</a></div>"
+                    + "<form action=\"/w/index.php\"><input id=\"searchInput\" name=\"search\" type=\"search\"></form>"
+                    + "<ul><li id=\"n-randompage\"><a href=\"/wiki/Special:Random\">Случайная статья</a></li></ul>"
+                    + "<h1 id=\"firstHeading\">" + escaped + "</h1>"
+                    + "<div id=\"bodyContent\"><p>" + escaped + " - сгенерированная статья.</p></div>"
+                    + "</body></html>";
+            return new RecordedResponse(200, "text/html; charset=UTF-8", null, html.getBytes(StandardCharsets.UTF_8));
+        }
+        return path.equals("/") ? redirect("/wiki/" + URLEncoder.encode("Заглавная_страница", StandardCharsets.UTF_8))
+                : new RecordedResponse(404, "text/plain; charset=UTF-8", null, new byte[0]);
+    }
+
+    private static RecordedResponse redirect(final String location) {
+        return new RecordedResponse(302, "text/plain; charset=UTF-8", location, new byte[0]);
+    }
+
+    /**
+     * Делает абсолютные ссылки на исходный сайт относительными, а ссылки на хосты ресурсов - путями /__host/&lt;хост&gt;,
+     * чтобы браузер оставался на локальном сервере
+     */
+    private String localize(final String text) {
+        final String host = URI.create(upstreamUrl).getHost();
+        final String relative = text.replace(upstreamUrl, "").replace("//" + host, "");
+        return ASSET_URL.matcher(relative).replaceAll(Matcher.quoteReplacement(ASSET_HOST_PREFIX) + "$1");
+    }
+
+    /**
+     * Хост ресурса для пути /__host/&lt;хост&gt;/..., иначе null
+     */
+    private static String assetHostOf(final String requestUri) {
+        if (!requestUri.startsWith(ASSET_HOST_PREFIX)) {
+            return null;
+        }
+        final int end = requestUri.indexOf('/', ASSET_HOST_PREFIX.length());
+        return end < 0 ? requestUri.substring(ASSET_HOST_PREFIX.length()) : requestUri.substring(ASSET_HOST_PREFIX.length(), end);
+    }
+
+    private void send(final HttpExchange exchange, final RecordedResponse response) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", response.contentType);
+        if (response.location != null) {
+            exchange.getResponseHeaders().set("Location", response.location);
+        }
+        final boolean hasBody = response.body.length > 0 && !"HEAD".equals(exchange.getRequestMethod());
+        exchange.sendResponseHeaders(response.status, hasBody ? response.body.length : -1);
+        if (hasBody) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response.body);
+            }
+        }
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(archive)) {
+            throw new IllegalStateException("Архив для воспроизведения не найден: " + archive
+                    + ". Запишите его с -Dwiki.server.mode=record");
+        }
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            try (BufferedReader index = new BufferedReader(new InputStreamReader(
+                    zip.getInputStream(zip.getEntry(INDEX_ENTRY)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = index.readLine()) != null) {
+                    final String[] fields = line.split("\t", -1);
+                    try (InputStream body = zip.getInputStream(zip.getEntry(fields[4]))) {
+                        responses.put(fields[0], new RecordedResponse(Integer.parseInt(fields[1]), fields[2],
+                                fields[3].isEmpty() ? null : fields[3], body.readAllBytes()));
+                    }
+                }
+            }
+        }
+        System.out.println("Загружено записанных ответов: " + responses.size());
+    }
+
+    private void save() throws IOException {
+        if (archive.getParent() != null) {
+            Files.createDirectories(archive.getParent());
+        }
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            zip.setLevel(9);
+            final StringBuilder index = new StringBuilder();
+            int bodyNumber = 0;
+            for (Map.Entry<String, RecordedResponse> entry : new TreeMap<>(responses).entrySet()) {
+                final RecordedResponse response = entry.getValue();
+                final String bodyEntry = BODY_ENTRY_PREFIX + bodyNumber++;
+                index.append(entry.getKey()).append('\t')
+                        .append(response.status).append('\t')
+                        .append(response.contentType).append('\t')
+                        .append(response.location == null ? "" : response.location).append('\t')
+                        .append(bodyEntry).append('\n');
+                zip.putNextEntry(new ZipEntry(bodyEntry));
+                zip.write(response.body);
+                zip.closeEntry();
+            }
+            zip.putNextEntry(new ZipEntry(INDEX_ENTRY));
+            final Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+            writer.write(index.toString());
+            writer.flush();
+            zip.closeEntry();
+        }
+    }
+
+    private static class RecordedResponse {
+        private final int status;
+        private final String contentType;
+        private final String location;
+        private final byte[] body;
+
+        private RecordedResponse(final int status, final String contentType, final String location, final byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.location = location;
+            this.body = body;
+        }
+    }
+}